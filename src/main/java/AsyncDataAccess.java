@@ -0,0 +1,193 @@
+import javax.swing.SwingUtilities;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs DatabaseManager calls for the GUIs on background threads.
+ *
+ * Every future returned here completes on the Swing event thread, so
+ * thenAccept callbacks can touch components directly. Reads are coalesced by
+ * key: asking for something that is already being loaded joins the pending
+ * query instead of running it again. Reads on a channel (e.g. "menu") replace
+ * each other: starting a new one cancels the previous, so a slow answer for a
+ * restaurant the user has already clicked away from is never applied.
+ */
+public class AsyncDataAccess {
+
+    /**
+     * One query shared by every caller that asked for the same key.
+     */
+    private static final class Pending<T> {
+        final CompletableFuture<T> work = new CompletableFuture<>();
+        int interested;
+    }
+
+    private final ExecutorService executor;
+
+    // Guarded by this
+    private final Map<String, Pending<?>> inFlight = new HashMap<>();
+    // Only touched on the event thread
+    private final Map<String, CompletableFuture<?>> channels = new HashMap<>();
+
+    // Metrics
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+
+    public AsyncDataAccess(int threads) {
+        this.executor = Executors.newFixedThreadPool(threads, ClientExecutor.namedThreads("gui-data-"));
+    }
+
+    /**
+     * Build a facade from foodordering.gui.dataThreads (default 2).
+     */
+    public static AsyncDataAccess fromSystemProperties() {
+        return new AsyncDataAccess(Integer.getInteger("foodordering.gui.dataThreads", 2));
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // READS
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Run a read in the background, sharing it with any identical read
+     * (same key) still in flight.
+     */
+    public <T> CompletableFuture<T> read(String key, Supplier<T> query) {
+        Pending<T> pending = join(key, query);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        pending.work.whenComplete((value, error) -> deliver(result, value, error));
+        // Cancelling the caller's view releases its interest in the shared query
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                release(key, pending);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Like read, but first cancels the channel's previous request. Must be
+     * called on the event thread.
+     */
+    public <T> CompletableFuture<T> readLatest(String channel, String key, Supplier<T> query) {
+        cancel(channel);
+        CompletableFuture<T> result = read(key, query);
+        channels.put(channel, result);
+        result.whenComplete((value, error) -> channels.remove(channel, result));
+        return result;
+    }
+
+    /**
+     * Drop the channel's outstanding request, if any, so its result is never
+     * delivered. Must be called on the event thread.
+     */
+    public void cancel(String channel) {
+        CompletableFuture<?> previous = channels.remove(channel);
+        if (previous != null && previous.cancel(false)) {
+            cancelled.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> Pending<T> join(String key, Supplier<T> query) {
+        Pending<T> pending = (Pending<T>) inFlight.get(key);
+        if (pending != null) {
+            coalesced.incrementAndGet();
+            pending.interested++;
+            return pending;
+        }
+
+        Pending<T> created = new Pending<>();
+        created.interested = 1;
+        inFlight.put(key, created);
+        queries.incrementAndGet();
+        executor.execute(() -> {
+            if (created.work.isDone()) {
+                return; // Everyone lost interest before it started
+            }
+            try {
+                created.work.complete(query.get());
+            } catch (Throwable t) {
+                created.work.completeExceptionally(t);
+            } finally {
+                finished(key, created);
+            }
+        });
+        return created;
+    }
+
+    private synchronized void release(String key, Pending<?> pending) {
+        if (--pending.interested == 0 && inFlight.get(key) == pending) {
+            inFlight.remove(key);
+            pending.work.cancel(false); // No-op if it is already running
+        }
+    }
+
+    private synchronized void finished(String key, Pending<?> pending) {
+        inFlight.remove(key, pending);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // WRITES - never coalesced
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Run a write (or any call with side effects) in the background.
+     */
+    public <T> CompletableFuture<T> write(Supplier<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                T value = call.get();
+                deliver(result, value, null);
+            } catch (Throwable t) {
+                deliver(result, null, t);
+            }
+        });
+        return result;
+    }
+
+    public CompletableFuture<Void> write(Runnable call) {
+        return write(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // EVENT THREAD HAND-OFF
+    // ═══════════════════════════════════════════════════════════════════
+    private static <T> void deliver(CompletableFuture<T> result, T value, Throwable error) {
+        if (error != null && !(unwrap(error) instanceof CancellationException)) {
+            System.out.println("⚠ Background database call failed: " + unwrap(error));
+        }
+        SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                result.completeExceptionally(unwrap(error));
+            } else {
+                result.complete(value); // Ignored if the request was cancelled meanwhile
+            }
+        });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public String getStats() {
+        return String.format("async[queries=%d, coalesced=%d, cancelled=%d]",
+                queries.get(), coalesced.get(), cancelled.get());
+    }
+}
@@ -11,6 +11,14 @@ public class BasketItem {
         return food;
     }
 
+    public int getFoodId() {
+        return food.getId();
+    }
+
+    public int getRestaurantId() {
+        return food.getRestaurantId();
+    }
+
     public int getQuantity() {
         return quantity;
     }
@@ -19,12 +27,12 @@ public class BasketItem {
         this.quantity = quantity;
     }
 
-    public double getTotalPrice() {
-        return food.getPrice() * quantity;
+    public long getTotalCents() {
+        return Money.times(food.getPriceCents(), quantity);
     }
 
     @Override
     public String toString() {
-        return String.format("%dx %s ($%.2f)", quantity, food.getName(), getTotalPrice());
+        return quantity + "x " + food.getName() + " (" + Money.formatDollars(getTotalCents()) + ")";
     }
 }
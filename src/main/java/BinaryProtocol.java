@@ -0,0 +1,216 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Length-prefixed binary framing for the order protocol.
+ *
+ * A connection whose first byte is MAGIC speaks frames for its whole life;
+ * anything else is the line-based text protocol. Text commands start with an
+ * ASCII letter and 0xB1 cannot start a UTF-8 character, so the two never
+ * clash. Ids, quantities and cents travel as fixed-width integers, so the
+ * server decodes them straight out of the buffer without building Strings.
+ *
+ * Frame: magic u8 (0xB1) | type u8 | payload length u32 | payload
+ *
+ * Integers are big-endian; strings are a u16 byte count followed by UTF-8.
+ *
+ * ORDER: correlationId u32 | restaurantId u32 | totalCents i64 | itemCount u16,
+ * then per item foodId u32 | quantity u32 | priceCents i64 | name, then an
+ * optional orderKey string (the text protocol's ORDER_KEY line)
+ *
+ * RESULT: correlationId u32 | status u8 | orderId i32 (-1 if none) | message
+ *
+ * ORDER_BATCH: orderCount u16, then per order length u32 | ORDER payload
+ *
+ * BATCH_RESULT: orderCount u16, then per order a RESULT payload, in request
+ * order (a batch-level failure is answered with a REPLY "ERROR:..." instead)
+ *
+ * COMMAND / REPLY: one text-protocol line (STATS, NOTIFY:..., a response)
+ */
+public final class BinaryProtocol {
+
+    public static final int MAGIC = 0xB1;
+    public static final int HEADER_LENGTH = 6;
+    public static final int MAX_PAYLOAD_LENGTH = 1 << 20;
+
+    // Frame types
+    public static final byte ORDER = 1;
+    public static final byte RESULT = 2;
+    public static final byte COMMAND = 3;
+    public static final byte REPLY = 4;
+    public static final byte ORDER_BATCH = 5;
+    public static final byte BATCH_RESULT = 6;
+
+    // RESULT statuses, matching the text protocol's response prefixes
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+    public static final byte STATUS_REJECTED = 2;
+
+    private static final int MAX_STRING_LENGTH = 0xFFFF;
+
+    private BinaryProtocol() {
+    }
+
+    public static byte statusCode(String status) {
+        if ("OK".equals(status)) {
+            return STATUS_OK;
+        }
+        return "REJECTED".equals(status) ? STATUS_REJECTED : STATUS_ERROR;
+    }
+
+    public static String statusName(byte status) {
+        switch (status) {
+            case STATUS_OK:
+                return "OK";
+            case STATUS_REJECTED:
+                return "REJECTED";
+            default:
+                return "ERROR";
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // DECODING
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Payload length of the frame starting at the buffer's position, or -1 if
+     * the header is not complete yet. Does not move the position.
+     *
+     * @throws ProtocolException if the header is not a valid frame header
+     */
+    public static int payloadLength(ByteBuffer buffer) throws ProtocolException {
+        if (buffer.remaining() < HEADER_LENGTH) {
+            return -1;
+        }
+        int start = buffer.position();
+        if ((buffer.get(start) & 0xFF) != MAGIC) {
+            throw new ProtocolException("Bad frame magic");
+        }
+        return checkLength(buffer.getInt(start + 2));
+    }
+
+    private static int checkLength(int length) throws ProtocolException {
+        if (length < 0 || length > MAX_PAYLOAD_LENGTH) {
+            throw new ProtocolException("Frame too long");
+        }
+        return length;
+    }
+
+    public static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Step over a string the caller does not need.
+     */
+    public static void skipString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        buffer.position(buffer.position() + length);
+    }
+
+    /**
+     * Reads frames from a blocking stream into one reusable buffer.
+     */
+    public static final class FrameReader {
+        private final DataInputStream in;
+        private byte[] bytes = new byte[512];
+        private ByteBuffer payload = ByteBuffer.wrap(bytes);
+        private byte type;
+
+        public FrameReader(InputStream in) {
+            this.in = new DataInputStream(in);
+        }
+
+        /**
+         * Read the next frame. Returns false at a clean end of stream between
+         * frames. The payload is only valid until the next call.
+         */
+        public boolean next() throws IOException {
+            int magic = in.read();
+            if (magic < 0) {
+                return false;
+            }
+            if (magic != MAGIC) {
+                throw new ProtocolException("Bad frame magic");
+            }
+            type = in.readByte();
+            int length = checkLength(in.readInt());
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+                payload = ByteBuffer.wrap(bytes);
+            }
+            in.readFully(bytes, 0, length);
+            payload.clear().limit(length);
+            return true;
+        }
+
+        public byte type() {
+            return type;
+        }
+
+        public ByteBuffer payload() {
+            return payload;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // ENCODING
+    // ═══════════════════════════════════════════════════════════════════
+
+    public static ByteBuffer result(int correlationId, String status, int orderId, String message) {
+        byte[] text = utf8(message);
+        ByteBuffer frame = frame(RESULT, 4 + 1 + 4 + 2 + text.length);
+        frame.putInt(correlationId).put(statusCode(status)).putInt(orderId);
+        putString(frame, text);
+        return frame.flip();
+    }
+
+    public static ByteBuffer command(String line) {
+        return lineFrame(COMMAND, line);
+    }
+
+    public static ByteBuffer reply(String line) {
+        return lineFrame(REPLY, line);
+    }
+
+    private static ByteBuffer lineFrame(byte type, String line) {
+        byte[] text = line.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = frame(type, text.length);
+        frame.put(text);
+        return frame.flip();
+    }
+
+    /**
+     * A heap buffer sized for the whole frame, header written, positioned at
+     * the start of the payload.
+     */
+    static ByteBuffer frame(byte type, int payloadLength) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_LENGTH + payloadLength);
+        frame.put((byte) MAGIC).put(type).putInt(payloadLength);
+        return frame;
+    }
+
+    static void putString(ByteBuffer buffer, byte[] text) {
+        buffer.putShort((short) text.length).put(text);
+    }
+
+    /**
+     * UTF-8 bytes of a string field, cut to the u16 length limit.
+     */
+    public static byte[] utf8(String value) {
+        byte[] text = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        if (text.length > MAX_STRING_LENGTH) {
+            text = java.util.Arrays.copyOf(text, MAX_STRING_LENGTH);
+        }
+        return text;
+    }
+}
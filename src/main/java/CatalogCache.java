@@ -0,0 +1,284 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Read-through cache for restaurants, menus and food lookups.
+ *
+ * Entries are immutable snapshots; callers always get fresh Restaurant, Menu
+ * and Food objects built from them, so GUI code can keep mutating what it
+ * gets back. Both maps are LRU-bounded.
+ *
+ * Writes made through DatabaseManager invalidate the cache directly. Writes
+ * from other processes (the manager GUI and the customer GUI run separately)
+ * are picked up through a catalog version counter maintained by database
+ * triggers, checked at most once per check interval.
+ */
+public class CatalogCache {
+
+    // ═══════════════════════════════════════════════════════════════════
+    // SNAPSHOTS
+    // ═══════════════════════════════════════════════════════════════════
+    static final class FoodSnapshot {
+        final int id;
+        final String name;
+        final String type;
+        final long priceCents;
+        final int restaurantId;
+
+        FoodSnapshot(Food food) {
+            this.id = food.getId();
+            this.name = food.getName();
+            this.type = food.getType();
+            this.priceCents = food.getPriceCents();
+            this.restaurantId = food.getRestaurantId();
+        }
+
+        Food toFood() {
+            Food food = new Food(name, type, priceCents);
+            food.setId(id);
+            food.setRestaurantId(restaurantId);
+            return food;
+        }
+    }
+
+    static final class RestaurantSnapshot {
+        final int id;
+        final String name;
+        final List<FoodSnapshot> menu;
+
+        RestaurantSnapshot(Restaurant restaurant) {
+            this.id = restaurant.getId();
+            this.name = restaurant.getName();
+            List<FoodSnapshot> foods = new ArrayList<>();
+            for (Food food : restaurant.getMenu().getFoodItems()) {
+                foods.add(new FoodSnapshot(food));
+            }
+            this.menu = Collections.unmodifiableList(foods);
+        }
+
+        Menu toMenu() {
+            Menu copy = new Menu();
+            for (FoodSnapshot food : menu) {
+                copy.addFood(food.toFood());
+            }
+            return copy;
+        }
+
+        Restaurant toRestaurant() {
+            Restaurant restaurant = new Restaurant(id, name);
+            restaurant.setMenu(toMenu());
+            return restaurant;
+        }
+    }
+
+    private class LruMap<K, V> extends LinkedHashMap<K, V> {
+        LruMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final int maxEntries;
+    private final long checkIntervalNanos;
+    private final LongSupplier versionSource;
+
+    private final LruMap<Integer, RestaurantSnapshot> restaurants = new LruMap<>();
+    private final LruMap<String, FoodSnapshot> foodsByName = new LruMap<>();
+    private final LruMap<Integer, FoodSnapshot> foodsById = new LruMap<>();
+
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private long generation = 0;
+    private long lastSeenVersion = Long.MIN_VALUE;
+    private volatile long nextCheckNanos = System.nanoTime();
+
+    // Metrics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param maxEntries     size bound per map; 0 disables caching
+     * @param checkIntervalMs how often to poll the version source
+     * @param versionSource  current catalog version, or -1 if it cannot be read
+     */
+    public CatalogCache(int maxEntries, long checkIntervalMs, LongSupplier versionSource) {
+        this.maxEntries = maxEntries;
+        this.checkIntervalNanos = checkIntervalMs * 1_000_000L;
+        this.versionSource = versionSource;
+    }
+
+    /**
+     * Build a cache from foodordering.catalog.maxEntries (default 1000) and
+     * foodordering.catalog.checkIntervalMs (default 1000).
+     */
+    public static CatalogCache fromSystemProperties(LongSupplier versionSource) {
+        return new CatalogCache(
+                Integer.getInteger("foodordering.catalog.maxEntries", 1000),
+                Long.getLong("foodordering.catalog.checkIntervalMs", 1000L),
+                versionSource);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // LOOKUPS
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Cached restaurant with its menu, loading it on a miss. Null results are
+     * not cached.
+     */
+    public Restaurant getRestaurant(int id, Function<Integer, Restaurant> loader) {
+        RestaurantSnapshot snapshot = getRestaurantSnapshot(id, loader);
+        return snapshot == null ? null : snapshot.toRestaurant();
+    }
+
+    /**
+     * Cached menu of a restaurant; shares its entry with getRestaurant.
+     */
+    public Menu getMenu(int restaurantId, Function<Integer, Restaurant> loader) {
+        RestaurantSnapshot snapshot = getRestaurantSnapshot(restaurantId, loader);
+        return snapshot == null ? new Menu() : snapshot.toMenu();
+    }
+
+    private RestaurantSnapshot getRestaurantSnapshot(int id, Function<Integer, Restaurant> loader) {
+        return getOrLoad(restaurants, id, key -> {
+            Restaurant loaded = loader.apply(key);
+            return loaded == null ? null : new RestaurantSnapshot(loaded);
+        });
+    }
+
+    public Food getFoodByName(String name, Function<String, Food> loader) {
+        FoodSnapshot snapshot = getOrLoad(foodsByName, name, key -> {
+            Food loaded = loader.apply(key);
+            return loaded == null ? null : new FoodSnapshot(loaded);
+        });
+        return snapshot == null ? null : snapshot.toFood();
+    }
+
+    public Food getFoodById(int id, Function<Integer, Food> loader) {
+        FoodSnapshot snapshot = getOrLoad(foodsById, id, key -> {
+            Food loaded = loader.apply(key);
+            return loaded == null ? null : new FoodSnapshot(loaded);
+        });
+        return snapshot == null ? null : snapshot.toFood();
+    }
+
+    private <K, V> V getOrLoad(LruMap<K, V> map, K key, Function<K, V> loader) {
+        if (maxEntries <= 0) {
+            return loader.apply(key);
+        }
+
+        checkVersion();
+
+        long loadGeneration;
+        synchronized (this) {
+            V cached = map.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            loadGeneration = generation;
+        }
+
+        // Load outside the lock so one slow query doesn't stall other readers
+        misses.incrementAndGet();
+        V loaded = loader.apply(key);
+        if (loaded != null) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    map.put(key, loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // INVALIDATION
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Drop every entry. Called after any catalog write; menus change rarely,
+     * so finer-grained invalidation isn't worth the bookkeeping.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        restaurants.clear();
+        foodsByName.clear();
+        foodsById.clear();
+        invalidations.incrementAndGet();
+    }
+
+    private void checkVersion() {
+        long now = System.nanoTime();
+        if (now - nextCheckNanos < 0) {
+            return;
+        }
+        nextCheckNanos = now + checkIntervalNanos;
+
+        long version = versionSource.getAsLong();
+        if (version < 0) {
+            return;
+        }
+        synchronized (this) {
+            if (version != lastSeenVersion) {
+                if (lastSeenVersion != Long.MIN_VALUE) {
+                    invalidateAll();
+                }
+                lastSeenVersion = version;
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // METRICS
+    // ═══════════════════════════════════════════════════════════════════
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    public synchronized int size() {
+        return restaurants.size() + foodsByName.size() + foodsById.size();
+    }
+
+    public String getStats() {
+        return String.format("catalog[max=%d, restaurants=%d, foods=%d] hits=%d misses=%d evictions=%d "
+                + "invalidations=%d",
+                maxEntries, restaurantCount(), foodCount(), getHitCount(), getMissCount(), getEvictionCount(),
+                getInvalidationCount());
+    }
+
+    private synchronized int restaurantCount() {
+        return restaurants.size();
+    }
+
+    private synchronized int foodCount() {
+        return foodsByName.size() + foodsById.size();
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker for calls to the order server.
+ *
+ * After failureThreshold consecutive failures the breaker opens and
+ * allowRequest() answers false, so callers skip the server instead of each
+ * waiting for a connect timeout. While open, one request per openMillis is
+ * let through as a probe; its success closes the breaker again.
+ */
+public class CircuitBreaker {
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private int consecutiveFailures;
+    private long lastAttemptNanos; // last failure or probe while open
+    private long trips;
+    private long shortCircuited;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * Build a breaker from system properties:
+     * foodordering.client.breaker.failures,
+     * foodordering.client.breaker.openMs.
+     */
+    public static CircuitBreaker fromSystemProperties(String name) {
+        return new CircuitBreaker(name,
+                Integer.getInteger("foodordering.client.breaker.failures", 2),
+                Long.getLong("foodordering.client.breaker.openMs", 10000L));
+    }
+
+    /**
+     * Whether a call should be attempted now. Counts as the probe when the
+     * breaker is open and the open interval has passed.
+     */
+    public synchronized boolean allowRequest() {
+        if (!isOpen()) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - lastAttemptNanos >= openNanos) {
+            lastAttemptNanos = now;
+            return true;
+        }
+        shortCircuited++;
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        if (isOpen()) {
+            System.out.println("🟢 " + name + " reachable again");
+        }
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        lastAttemptNanos = System.nanoTime();
+        if (consecutiveFailures == failureThreshold) {
+            trips++;
+            System.out.println("🔴 " + name + " unreachable, skipping it for "
+                    + TimeUnit.NANOSECONDS.toMillis(openNanos) + "ms at a time");
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return consecutiveFailures >= failureThreshold;
+    }
+
+    public synchronized String getStats() {
+        return "breaker[" + name + ", state=" + (isOpen() ? "open" : "closed") + ", failures="
+                + consecutiveFailures + "] trips=" + trips + " shortCircuited=" + shortCircuited;
+    }
+}
@@ -0,0 +1,148 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs OrderServer work with a bounded execution model instead of one
+ * unbounded platform thread per client.
+ *
+ * Modes:
+ * - pool: fixed platform-thread pool with a bounded queue; work beyond
+ * threads + queue is rejected
+ * - virtual: one virtual thread per task (needs a Java 21+ runtime, falls
+ * back to pool otherwise)
+ */
+public class ClientExecutor {
+
+    public enum Mode {
+        POOL, VIRTUAL
+    }
+
+    private final Mode mode;
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor pool; // null in virtual mode
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ClientExecutor(Mode requestedMode, int threads, int queueCapacity) {
+        ExecutorService virtual = requestedMode == Mode.VIRTUAL ? newVirtualThreadExecutor() : null;
+
+        if (virtual != null) {
+            this.mode = Mode.VIRTUAL;
+            this.executor = virtual;
+            this.pool = null;
+        } else {
+            if (requestedMode == Mode.VIRTUAL) {
+                System.out.println("⚠ Virtual threads need Java 21+, using a thread pool instead");
+            }
+            this.mode = Mode.POOL;
+            this.pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), namedThreads("order-client-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.executor = pool;
+        }
+    }
+
+    /**
+     * Build an executor from system properties:
+     * foodordering.server.executor (pool|virtual), foodordering.server.threads,
+     * foodordering.server.queue.
+     */
+    public static ClientExecutor fromSystemProperties() {
+        String modeName = System.getProperty("foodordering.server.executor", "pool");
+        Mode mode = "virtual".equalsIgnoreCase(modeName) ? Mode.VIRTUAL : Mode.POOL;
+        int threads = Integer.getInteger("foodordering.server.threads",
+                Math.max(8, Runtime.getRuntime().availableProcessors() * 4));
+        int queue = Integer.getInteger("foodordering.server.queue", 1024);
+        return new ClientExecutor(mode, threads, queue);
+    }
+
+    /**
+     * Submit a task. Returns false (and counts a rejection) when the pool and
+     * its queue are full; the caller decides how to turn the client away.
+     */
+    public boolean submit(Runnable task) {
+        try {
+            executor.execute(() -> {
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return false;
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // METRICS
+    // ═══════════════════════════════════════════════════════════════════
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public int getQueuedCount() {
+        return pool == null ? 0 : pool.getQueue().size();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public String getStats() {
+        String size = pool == null ? "unbounded" : String.valueOf(pool.getMaximumPoolSize());
+        return String.format("executor[mode=%s, threads=%s] active=%d queued=%d rejected=%d completed=%d",
+                mode.name().toLowerCase(), size, getActiveCount(), getQueuedCount(),
+                getRejectedCount(), getCompletedCount());
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // HELPERS
+    // ═══════════════════════════════════════════════════════════════════
+    static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() looked up reflectively so the
+     * server still compiles for Java 17.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
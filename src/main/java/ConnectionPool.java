@@ -0,0 +1,377 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of reusable SQLite connections.
+ *
+ * Connections handed out by {@link #borrow()} and {@link #borrowWriter()} are
+ * proxies: calling close() returns the underlying connection to the pool
+ * instead of closing it, so existing try-with-resources code keeps working.
+ *
+ * In dedicated-writer mode one extra connection is reserved for writes and
+ * handed out to a single caller at a time, matching SQLite's single-writer
+ * model and avoiding SQLITE_BUSY between our own threads. Connections that
+ * may write open their transactions with BEGIN IMMEDIATE, so a transaction
+ * holds the write lock from its first statement: anything it reads before
+ * writing (OrderServer takes the next order id from MAX(id)) cannot be
+ * changed by another process before it commits.
+ */
+public class ConnectionPool {
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CONFIGURATION (system properties)
+    // ═══════════════════════════════════════════════════════════════════
+    private static final int DEFAULT_SIZE = Integer.getInteger("foodordering.db.poolSize", 4);
+    private static final long DEFAULT_BORROW_TIMEOUT_MS = Long.getLong("foodordering.db.borrowTimeoutMs", 5000L);
+    private static final boolean DEFAULT_DEDICATED_WRITER = Boolean.parseBoolean(
+            System.getProperty("foodordering.db.dedicatedWriter", "true"));
+    private static final boolean DEFAULT_VALIDATE_ON_BORROW = Boolean.parseBoolean(
+            System.getProperty("foodordering.db.validateOnBorrow", "true"));
+
+    private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the shared pool for the given JDBC URL, creating it on first use
+     * with the configured defaults.
+     */
+    public static ConnectionPool forUrl(String url) {
+        return POOLS.computeIfAbsent(url, u -> new ConnectionPool(u, DEFAULT_SIZE,
+                DEFAULT_DEDICATED_WRITER, DEFAULT_VALIDATE_ON_BORROW, DEFAULT_BORROW_TIMEOUT_MS,
+                StorageProfile.fromSystemProperties()));
+    }
+
+    private final String url;
+    private final int maxSize;
+    private final boolean dedicatedWriter;
+    private final boolean validateOnBorrow;
+    private final long borrowTimeoutMs;
+    private final StorageProfile profile;
+
+    private final BlockingQueue<Connection> idle;
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final Semaphore writerPermit = new Semaphore(1, true);
+    private Connection writer;
+
+    // Metrics
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong borrowNanosTotal = new AtomicLong();
+    private final AtomicLong borrowNanosMax = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    private volatile boolean closed = false;
+
+    public ConnectionPool(String url, int maxSize, boolean dedicatedWriter, boolean validateOnBorrow,
+            long borrowTimeoutMs, StorageProfile profile) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.url = url;
+        this.maxSize = maxSize;
+        this.dedicatedWriter = dedicatedWriter;
+        this.validateOnBorrow = validateOnBorrow;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.profile = profile;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // BORROWING
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Borrow a connection for reads (or for writes when dedicated-writer mode
+     * is off). Blocks up to the borrow timeout when the pool is exhausted.
+     */
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        Connection conn = takeReader();
+        recordBorrow(System.nanoTime() - start);
+        return wrap(conn, false);
+    }
+
+    /**
+     * Borrow the dedicated writer connection. Only one caller holds it at a
+     * time; others wait up to the borrow timeout.
+     */
+    public Connection borrowWriter() throws SQLException {
+        if (!dedicatedWriter) {
+            return borrow();
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!writerPermit.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timed out waiting for writer connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for writer connection", e);
+        }
+
+        try {
+            synchronized (writerPermit) {
+                if (writer == null || !isUsable(writer)) {
+                    closeQuietly(writer);
+                    writer = open(true);
+                }
+            }
+        } catch (SQLException e) {
+            writerPermit.release();
+            throw e;
+        }
+
+        recordBorrow(System.nanoTime() - start);
+        return wrap(writer, true);
+    }
+
+    private Connection takeReader() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMs);
+        while (true) {
+            Connection conn = idle.poll();
+            if (conn == null) {
+                // Grow lazily up to maxSize
+                int current = created.get();
+                if (current < maxSize && created.compareAndSet(current, current + 1)) {
+                    try {
+                        // Without a dedicated writer, readers carry the writes too
+                        return open(!dedicatedWriter);
+                    } catch (SQLException e) {
+                        created.decrementAndGet();
+                        throw e;
+                    }
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    timeouts.incrementAndGet();
+                    throw new SQLException("Timed out waiting for a pooled connection");
+                }
+                try {
+                    conn = idle.poll(remaining, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted waiting for a pooled connection", e);
+                }
+                if (conn == null) {
+                    continue;
+                }
+            }
+
+            if (!validateOnBorrow || isUsable(conn)) {
+                return conn;
+            }
+
+            // Broken connection: drop it and let the loop open a replacement
+            discard(conn);
+        }
+    }
+
+    private void release(Connection conn, boolean isWriter) {
+        boolean healthy = resetForReuse(conn);
+
+        if (isWriter) {
+            if (!healthy) {
+                synchronized (writerPermit) {
+                    closeQuietly(writer);
+                    writer = null;
+                }
+                discarded.incrementAndGet();
+            }
+            writerPermit.release();
+            return;
+        }
+
+        if (!healthy || closed || !idle.offer(conn)) {
+            discard(conn);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CONNECTION LIFECYCLE
+    // ═══════════════════════════════════════════════════════════════════
+    private Connection open(boolean writes) throws SQLException {
+        java.util.Properties config = new java.util.Properties();
+        if (writes) {
+            config.setProperty("transaction_mode", "IMMEDIATE"); // SQLiteConfig.TransactionMode
+        }
+        Connection conn = DriverManager.getConnection(url, config);
+        try {
+            profile.apply(conn);
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(conn);
+            throw e;
+        }
+        return conn;
+    }
+
+    private boolean isUsable(Connection conn) {
+        try {
+            return conn != null && !conn.isClosed() && conn.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Undo per-borrow state so the next borrower sees a clean connection.
+     */
+    private boolean resetForReuse(Connection conn) {
+        try {
+            if (conn.isClosed()) {
+                return false;
+            }
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(Connection conn) {
+        discarded.incrementAndGet();
+        created.decrementAndGet();
+        closeQuietly(conn);
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Close every idle connection and the writer. Connections still on loan are
+     * closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        Connection conn;
+        while ((conn = idle.poll()) != null) {
+            discard(conn);
+        }
+        synchronized (writerPermit) {
+            closeQuietly(writer);
+            writer = null;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // PROXY - close() returns the connection to the pool
+    // ═══════════════════════════════════════════════════════════════════
+    private Connection wrap(Connection target, boolean isWriter) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean returned = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if ("close".equals(name)) {
+                    if (!returned) {
+                        returned = true;
+                        release(target, isWriter);
+                    }
+                    return null;
+                }
+                if ("isClosed".equals(name)) {
+                    return returned || target.isClosed();
+                }
+                if (returned) {
+                    throw new SQLException("Connection has already been returned to the pool");
+                }
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // METRICS
+    // ═══════════════════════════════════════════════════════════════════
+    private void recordBorrow(long nanos) {
+        borrowCount.incrementAndGet();
+        borrowNanosTotal.addAndGet(nanos);
+        borrowNanosMax.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public double getAverageBorrowMicros() {
+        long count = borrowCount.get();
+        return count == 0 ? 0.0 : borrowNanosTotal.get() / 1000.0 / count;
+    }
+
+    public double getMaxBorrowMicros() {
+        return borrowNanosMax.get() / 1000.0;
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    public long getDiscardedCount() {
+        return discarded.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getOpenCount() {
+        return created.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public boolean isDedicatedWriter() {
+        return dedicatedWriter;
+    }
+
+    public StorageProfile getProfile() {
+        return profile;
+    }
+
+    public String getStats() {
+        return String.format("pool[size=%d, open=%d, idle=%d, writer=%s] borrows=%d avg=%.1fus max=%.1fus "
+                + "timeouts=%d discarded=%d",
+                maxSize, getOpenCount(), getIdleCount(), dedicatedWriter ? "dedicated" : "shared",
+                getBorrowCount(), getAverageBorrowMicros(), getMaxBorrowMicros(),
+                getTimeoutCount(), getDiscardedCount());
+    }
+}
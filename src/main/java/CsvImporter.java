@@ -0,0 +1,479 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Streaming bulk import of RestaurantName,FoodName,FoodType,Price rows.
+ *
+ * All rows go through one writer connection as batched prepared inserts,
+ * committed every commitInterval rows instead of once per food. With
+ * rebuildIndexes the secondary indexes are dropped for the load and rebuilt
+ * once at the end, which is much cheaper than maintaining them per row.
+ *
+ * importFileParallel adds a parallel parse stage in front of the same
+ * single, ordered writer for catalogs where parsing is the bottleneck.
+ */
+public class CsvImporter {
+
+    /**
+     * One validated food row.
+     */
+    static class FoodRow {
+        final String restaurantName;
+        final String foodName;
+        final String foodType;
+        final long priceCents;
+
+        FoodRow(String restaurantName, String foodName, String foodType, long priceCents) {
+            this.restaurantName = restaurantName;
+            this.foodName = foodName;
+            this.foodType = foodType;
+            this.priceCents = priceCents;
+        }
+    }
+
+    private final int batchSize;
+    private final int commitInterval;
+    private final boolean rebuildIndexes;
+    private final int progressInterval;
+    private final int threads;
+    private final int chunkBytes;
+    private final int maxChunksInFlight;
+
+    // Import state
+    private final Map<String, Integer> restaurantCache = new HashMap<>();
+    private long imported;
+    private long skipped;
+    private int restaurantsCreated;
+    private long startNanos;
+
+    public CsvImporter(int batchSize, int commitInterval, boolean rebuildIndexes, int progressInterval,
+            int threads, int chunkBytes) {
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+        this.rebuildIndexes = rebuildIndexes;
+        this.progressInterval = progressInterval;
+        this.threads = Math.max(1, threads);
+        this.chunkBytes = chunkBytes;
+        this.maxChunksInFlight = 2 * this.threads;
+    }
+
+    /**
+     * Build an importer from foodordering.import.batchSize (default 1000),
+     * foodordering.import.commitInterval (default 50000),
+     * foodordering.import.rebuildIndexes (default true),
+     * foodordering.import.progressInterval (default 100000) and, for
+     * importFileParallel, foodordering.import.threads (default: cores) and
+     * foodordering.import.chunkKb (default 1024).
+     */
+    public static CsvImporter fromSystemProperties() {
+        return new CsvImporter(
+                Integer.getInteger("foodordering.import.batchSize", 1000),
+                Integer.getInteger("foodordering.import.commitInterval", 50000),
+                Boolean.parseBoolean(System.getProperty("foodordering.import.rebuildIndexes", "true")),
+                Integer.getInteger("foodordering.import.progressInterval", 100000),
+                Integer.getInteger("foodordering.import.threads", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("foodordering.import.chunkKb", 1024) * 1024);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // IMPORT
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Import on the calling thread: read, parse and insert one record at a time.
+     */
+    public void importFile(String csvFile) throws IOException, SQLException {
+        run(writer -> {
+            try (BufferedReader br = new BufferedReader(new FileReader(csvFile))) {
+                readRecord(br); // Skip header
+                List<String> fields;
+                while ((fields = readRecord(br)) != null) {
+                    if (isBlank(fields)) {
+                        continue;
+                    }
+                    FoodRow row = parseRow(fields);
+                    if (row != null) {
+                        writer.add(row);
+                    } else {
+                        skipped++;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Import with a parallel parse stage. The file is read in chunks split on
+     * record boundaries; parse workers turn chunks into rows, and this thread
+     * persists them in file order through the single writer. At most
+     * maxChunksInFlight chunks are read ahead, which bounds memory to roughly
+     * that many chunks regardless of file size.
+     */
+    public void importFileParallel(String csvFile) throws IOException, SQLException {
+        ForkJoinPool workers = new ForkJoinPool(threads);
+        try {
+            run(writer -> loadChunks(csvFile, workers, writer));
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private interface Load {
+        void into(Writer writer) throws IOException, SQLException;
+    }
+
+    /**
+     * Borrow the writer connection, optionally drop the secondary indexes,
+     * run the load in one transaction (plus the writer's periodic commits) and
+     * rebuild the indexes even if the load fails.
+     */
+    private void run(Load load) throws IOException, SQLException {
+        for (Restaurant r : DatabaseManager.getRestaurantHeaders()) {
+            restaurantCache.put(r.getName().toLowerCase(), r.getId());
+        }
+        startNanos = System.nanoTime();
+
+        try (Connection conn = DatabaseManager.getPool().borrowWriter()) {
+            if (rebuildIndexes) {
+                DatabaseManager.dropSecondaryIndexes(conn);
+            }
+            try {
+                conn.setAutoCommit(false);
+                try (Writer writer = new Writer(conn)) {
+                    load.into(writer);
+                }
+                conn.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+                if (rebuildIndexes) {
+                    System.out.println("Rebuilding indexes...");
+                    DatabaseManager.createSecondaryIndexes(conn);
+                }
+            }
+        } finally {
+            DatabaseManager.getCatalogCache().invalidateAll();
+            DatabaseManager.notifyMenuChanged(0);
+        }
+
+        System.out.println("Data import completed: " + progress());
+    }
+
+    static boolean isBlank(List<String> fields) {
+        return fields.size() == 1 && fields.get(0).trim().isEmpty();
+    }
+
+    /**
+     * Validate one CSV record. Returns null when the record is incomplete or
+     * the price is not a number; the caller counts it as skipped. Safe to call
+     * from parse workers.
+     */
+    static FoodRow parseRow(List<String> fields) {
+        if (fields.size() != 4) {
+            System.err.println("Skipping line with " + fields.size() + " fields: " + String.join(",", fields));
+            return null;
+        }
+
+        String restaurantName = fields.get(0).trim();
+        String foodName = fields.get(1).trim();
+        String foodType = fields.get(2).trim();
+        String priceStr = fields.get(3).trim();
+
+        if (restaurantName.isEmpty() || foodName.isEmpty() || foodType.isEmpty() || priceStr.isEmpty()) {
+            System.err.println("Skipping incomplete line: " + String.join(",", fields));
+            return null;
+        }
+
+        try {
+            return new FoodRow(restaurantName, foodName, foodType, Money.parse(priceStr));
+        } catch (NumberFormatException e) {
+            System.err.println("Skipping line with invalid price: " + String.join(",", fields));
+            return null;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // PARALLEL PARSE STAGE
+    // ═══════════════════════════════════════════════════════════════════
+    private static class ParsedChunk {
+        final List<FoodRow> rows = new ArrayList<>();
+        int skipped;
+    }
+
+    private void loadChunks(String csvFile, ForkJoinPool workers, Writer writer) throws IOException, SQLException {
+        Deque<CompletableFuture<ParsedChunk>> inFlight = new ArrayDeque<>();
+        Charset charset = Charset.defaultCharset(); // Same as the FileReader used by importFile
+
+        try (FileChannel channel = FileChannel.open(Paths.get(csvFile), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(chunkBytes);
+            byte[] carry = new byte[0];
+            boolean first = true;
+
+            while (true) {
+                buffer.clear();
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    if (carry.length > 0) {
+                        inFlight.add(submitChunk(workers, carry, first, charset));
+                    }
+                    break;
+                }
+
+                byte[] data = Arrays.copyOf(carry, carry.length + read);
+                System.arraycopy(buffer.array(), 0, data, carry.length, read);
+
+                int end = lastRecordEnd(data);
+                if (end < 0) {
+                    carry = data; // One record longer than a chunk: keep reading
+                    continue;
+                }
+                inFlight.add(submitChunk(workers, Arrays.copyOf(data, end), first, charset));
+                carry = Arrays.copyOfRange(data, end, data.length);
+                first = false;
+
+                while (inFlight.size() >= maxChunksInFlight) {
+                    writeChunk(inFlight.poll(), writer);
+                }
+            }
+
+            while (!inFlight.isEmpty()) {
+                writeChunk(inFlight.poll(), writer);
+            }
+        } finally {
+            for (CompletableFuture<ParsedChunk> pending : inFlight) {
+                pending.cancel(true);
+            }
+        }
+    }
+
+    private static CompletableFuture<ParsedChunk> submitChunk(ForkJoinPool workers, byte[] bytes,
+            boolean skipHeader, Charset charset) {
+        return CompletableFuture.supplyAsync(() -> parseChunk(bytes, skipHeader, charset), workers);
+    }
+
+    private static ParsedChunk parseChunk(byte[] bytes, boolean skipHeader, Charset charset) {
+        ParsedChunk chunk = new ParsedChunk();
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(bytes), charset))) {
+            if (skipHeader) {
+                readRecord(br);
+            }
+            List<String> fields;
+            while ((fields = readRecord(br)) != null) {
+                if (isBlank(fields)) {
+                    continue;
+                }
+                FoodRow row = parseRow(fields);
+                if (row != null) {
+                    chunk.rows.add(row);
+                } else {
+                    chunk.skipped++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunk;
+    }
+
+    private void writeChunk(CompletableFuture<ParsedChunk> future, Writer writer) throws IOException, SQLException {
+        ParsedChunk chunk;
+        try {
+            chunk = future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+        skipped += chunk.skipped;
+        for (FoodRow row : chunk.rows) {
+            writer.add(row);
+        }
+    }
+
+    /**
+     * Offset just past the last newline that is not inside a quoted field, or
+     * -1 if the data holds no complete record. Every chunk starts on a record
+     * boundary, so quote state starts closed.
+     */
+    static int lastRecordEnd(byte[] data) {
+        boolean inQuotes = false;
+        int end = -1;
+        for (int i = 0; i < data.length; i++) {
+            byte b = data[i];
+            if (b == '"') {
+                inQuotes = !inQuotes; // An escaped "" toggles twice
+            } else if (b == '\n' && !inQuotes) {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Batches food inserts on the import connection and commits periodically.
+     */
+    private class Writer implements AutoCloseable {
+        private final Connection conn;
+        private final PreparedStatement insertFood;
+        private final PreparedStatement insertRestaurant;
+        private int pendingInBatch;
+        private long sinceCommit;
+
+        Writer(Connection conn) throws SQLException {
+            this.conn = conn;
+            this.insertFood = conn.prepareStatement(
+                    "INSERT INTO food(name, type, price_cents, restaurant_id) VALUES(?,?,?,?)");
+            this.insertRestaurant = conn.prepareStatement(
+                    "INSERT INTO restaurants(name) VALUES(?)", Statement.RETURN_GENERATED_KEYS);
+        }
+
+        void add(FoodRow row) throws SQLException {
+            insertFood.setString(1, row.foodName);
+            insertFood.setString(2, row.foodType);
+            insertFood.setLong(3, row.priceCents);
+            insertFood.setInt(4, restaurantIdFor(row.restaurantName));
+            insertFood.addBatch();
+
+            imported++;
+            sinceCommit++;
+            if (++pendingInBatch >= batchSize) {
+                flush();
+            }
+            if (sinceCommit >= commitInterval) {
+                flush();
+                conn.commit();
+                sinceCommit = 0;
+            }
+            if (progressInterval > 0 && imported % progressInterval == 0) {
+                System.out.println("  " + progress());
+            }
+        }
+
+        private int restaurantIdFor(String restaurantName) throws SQLException {
+            String cacheKey = restaurantName.toLowerCase();
+            Integer cached = restaurantCache.get(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+
+            insertRestaurant.setString(1, restaurantName);
+            insertRestaurant.executeUpdate();
+            try (ResultSet rs = insertRestaurant.getGeneratedKeys()) {
+                if (!rs.next()) {
+                    throw new SQLException("No id generated for restaurant " + restaurantName);
+                }
+                int id = rs.getInt(1);
+                restaurantCache.put(cacheKey, id);
+                restaurantsCreated++;
+                return id;
+            }
+        }
+
+        void flush() throws SQLException {
+            if (pendingInBatch > 0) {
+                insertFood.executeBatch();
+                pendingInBatch = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+            } finally {
+                insertFood.close();
+                insertRestaurant.close();
+            }
+        }
+    }
+
+    private String progress() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return String.format("%d rows imported, %d skipped, %d new restaurants in %.1fs (%.0f rows/s)",
+                imported, skipped, restaurantsCreated, seconds, seconds > 0 ? imported / seconds : 0.0);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CSV PARSING (RFC 4180: quoted fields, "" escapes, embedded newlines)
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Read one CSV record, continuing onto following lines while a quoted
+     * field is still open. Returns null at end of input.
+     */
+    static List<String> readRecord(BufferedReader br) throws IOException {
+        String line = br.readLine();
+        if (line == null) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean inQuotes = false;
+
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (inQuotes) {
+                    if (c == '"') {
+                        if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            inQuotes = false;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    inQuotes = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+
+            if (!inQuotes) {
+                break;
+            }
+            line = br.readLine();
+            if (line == null) {
+                break; // Unterminated quote: keep what we have
+            }
+            field.append('\n');
+        }
+
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -1,15 +1,13 @@
+import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.List;
-import java.io.PrintWriter;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class DatabaseManager {
     private static final String APP_DIR = System.getProperty("user.home") + java.io.File.separator
@@ -17,10 +15,40 @@ public class DatabaseManager {
     private static final String DB_URL = "jdbc:sqlite:" + APP_DIR + java.io.File.separator + "food_ordering.db";
     private static int port;
 
+    // SQLite's default limit on bound parameters is 999; stay well below it
+    private static final int MAX_IN_CLAUSE_IDS = 500;
+
+    private static final CatalogCache CATALOG = CatalogCache.fromSystemProperties(DatabaseManager::getCatalogVersion);
+
+    /**
+     * Shared connection pool for this database file (also used by OrderServer
+     * when it runs in the same JVM).
+     */
+    public static ConnectionPool getPool() {
+        return ConnectionPool.forUrl(DB_URL);
+    }
+
+    /**
+     * Borrow a pooled connection for reads. Closing it returns it to the pool.
+     */
     public static Connection connect() {
         Connection conn = null;
         try {
-            conn = DriverManager.getConnection(DB_URL);
+            conn = getPool().borrow();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        return conn;
+    }
+
+    /**
+     * Borrow the writer connection. SQLite allows a single writer at a time, so
+     * all inserts, updates and deletes go through this one.
+     */
+    public static Connection connectForWrite() {
+        Connection conn = null;
+        try {
+            conn = getPool().borrowWriter();
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
@@ -44,12 +72,12 @@ public class DatabaseManager {
                 + " id integer PRIMARY KEY,\n"
                 + " name text NOT NULL,\n"
                 + " type text NOT NULL,\n"
-                + " price real,\n"
+                + " price_cents integer,\n"
                 + " restaurant_id integer,\n"
                 + " FOREIGN KEY (restaurant_id) REFERENCES restaurants (id)\n"
                 + ");";
 
-        try (Connection conn = connect();
+        try (Connection conn = connectForWrite();
                 Statement stmt = conn.createStatement()) {
             stmt.execute(sqlRestaurants);
             stmt.execute(sqlFood);
@@ -58,8 +86,9 @@ public class DatabaseManager {
             String sqlOrders = "CREATE TABLE IF NOT EXISTS orders (\n"
                     + " id integer PRIMARY KEY,\n"
                     + " date text NOT NULL,\n"
-                    + " total_amount real,\n"
+                    + " total_cents integer,\n"
                     + " restaurant_id integer,\n"
+                    + " order_key text,\n"
                     + " FOREIGN KEY (restaurant_id) REFERENCES restaurants (id)\n"
                     + ");";
             stmt.execute(sqlOrders);
@@ -69,52 +98,317 @@ public class DatabaseManager {
                     + " order_id integer,\n"
                     + " food_name text,\n"
                     + " quantity integer,\n"
-                    + " price real,\n"
-                    + " FOREIGN KEY (order_id) REFERENCES orders (id)\n"
+                    + " price_cents integer,\n"
+                    + " food_id integer,\n"
+                    + " FOREIGN KEY (order_id) REFERENCES orders (id),\n"
+                    + " FOREIGN KEY (food_id) REFERENCES food (id)\n"
                     + ");";
             stmt.execute(sqlOrderItems);
 
             // ═══════════════════════════════════════════════════════════════
-            // SCHEMA MIGRATION: Add restaurant_id column if missing
+            // SCHEMA MIGRATIONS: bring older databases up to date
             // ═══════════════════════════════════════════════════════════════
             migrateSchema(conn);
 
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
+
+        // Start delivering orders queued while the server was down in an earlier run
+        try {
+            getOrderOutbox();
+        } catch (IOException e) {
+            System.out.println("❌ Could not open order outbox: " + e.getMessage());
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // SCHEMA MIGRATIONS - versioned with PRAGMA user_version
+    // ═══════════════════════════════════════════════════════════════════
+    private interface Migration {
+        void apply(Connection conn) throws SQLException;
     }
 
     /**
-     * Migrate schema to add missing columns
+     * Migration N (1-based) upgrades a database from user_version N-1 to N.
+     * Only ever append to this list; never reorder or edit shipped entries.
+     */
+    private static final Migration[] MIGRATIONS = {
+            // 1: orders.restaurant_id (databases created before it existed)
+            conn -> {
+                if (!hasColumn(conn, "orders", "restaurant_id")) {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("ALTER TABLE orders ADD COLUMN restaurant_id integer");
+                    }
+                }
+            },
+            // 2: secondary indexes for the hot lookup columns
+            conn -> createSecondaryIndexes(conn),
+            // 3: catalog version counter, bumped by triggers on every restaurant/food change
+            conn -> createCatalogVersionTriggers(conn),
+            // 4: order_items.food_id, backfilled by matching name within the order's restaurant
+            conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    if (!hasColumn(conn, "order_items", "food_id")) {
+                        stmt.execute("ALTER TABLE order_items ADD COLUMN food_id integer REFERENCES food (id)");
+                    }
+                    stmt.execute("UPDATE order_items SET food_id = (\n"
+                            + " SELECT f.id FROM food f JOIN orders o ON o.id = order_items.order_id\n"
+                            + " WHERE f.name = order_items.food_name AND f.restaurant_id = o.restaurant_id\n"
+                            + " ORDER BY f.id LIMIT 1)\n"
+                            + " WHERE food_id IS NULL");
+                }
+            },
+            // 5: money as INTEGER cents instead of REAL dollars
+            conn -> {
+                migrateToCents(conn, "food", "price", "price_cents");
+                migrateToCents(conn, "orders", "total_amount", "total_cents");
+                migrateToCents(conn, "order_items", "price", "price_cents");
+            },
+            // 6: orders.order_key, the client's idempotency key. Its unique index is a constraint,
+            // not a secondary index, so bulk loads keep it
+            conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    if (!hasColumn(conn, "orders", "order_key")) {
+                        stmt.execute("ALTER TABLE orders ADD COLUMN order_key text");
+                    }
+                    stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_orders_order_key ON orders(order_key)");
+                }
+            },
+    };
+
+    /**
+     * Secondary indexes as {name, definition}. Kept in one place so bulk loads
+     * can drop and rebuild them.
+     */
+    private static final String[][] SECONDARY_INDEXES = {
+            { "idx_food_name", "CREATE INDEX IF NOT EXISTS idx_food_name ON food(name)" },
+            { "idx_food_restaurant", "CREATE INDEX IF NOT EXISTS idx_food_restaurant ON food(restaurant_id)" },
+            { "idx_orders_restaurant_date",
+                    "CREATE INDEX IF NOT EXISTS idx_orders_restaurant_date ON orders(restaurant_id, date, id)" },
+            { "idx_orders_date", "CREATE INDEX IF NOT EXISTS idx_orders_date ON orders(date, id)" },
+            { "idx_order_items_order", "CREATE INDEX IF NOT EXISTS idx_order_items_order ON order_items(order_id)" },
+    };
+
+    /**
+     * Run every migration newer than the database's user_version, each in its
+     * own transaction together with the version bump.
      */
     private static void migrateSchema(Connection conn) {
         try {
-            // Check if restaurant_id column exists in orders table
-            boolean hasRestaurantId = false;
-            ResultSet rs = conn.getMetaData().getColumns(null, null, "orders", "restaurant_id");
-            if (rs.next()) {
-                hasRestaurantId = true;
+            int version = getSchemaVersion(conn);
+
+            for (int target = version + 1; target <= MIGRATIONS.length; target++) {
+                System.out.println("Migrating schema to version " + target + "...");
+                conn.setAutoCommit(false);
+                try (Statement stmt = conn.createStatement()) {
+                    MIGRATIONS[target - 1].apply(conn);
+                    stmt.execute("PRAGMA user_version = " + target);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
             }
-            rs.close();
 
-            if (!hasRestaurantId) {
-                System.out.println("Migrating schema: Adding restaurant_id to orders table...");
-                Statement stmt = conn.createStatement();
-                stmt.execute("ALTER TABLE orders ADD COLUMN restaurant_id integer");
-                stmt.close();
-                System.out.println("Schema migration complete.");
+            if (version < MIGRATIONS.length) {
+                System.out.println("Schema migration complete (version " + MIGRATIONS.length + ").");
+            }
+        } catch (SQLException e) {
+            System.out.println("Schema migration failed: " + e.getMessage());
+        }
+    }
+
+    private static int getSchemaVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Replace a REAL dollar column with an INTEGER cents column, rounding each
+     * value to the nearest cent. Safe to re-run.
+     */
+    private static void migrateToCents(Connection conn, String table, String dollarColumn, String centsColumn)
+            throws SQLException {
+        if (!hasColumn(conn, table, dollarColumn)) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            if (!hasColumn(conn, table, centsColumn)) {
+                stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + centsColumn + " integer");
+            }
+            stmt.execute("UPDATE " + table + " SET " + centsColumn + " = CAST(ROUND(" + dollarColumn
+                    + " * 100) AS INTEGER) WHERE " + centsColumn + " IS NULL");
+            stmt.execute("ALTER TABLE " + table + " DROP COLUMN " + dollarColumn);
+        }
+    }
+
+    private static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(null, null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    static void createSecondaryIndexes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String[] index : SECONDARY_INDEXES) {
+                stmt.execute(index[1]);
+            }
+        }
+    }
+
+    /**
+     * Drop the secondary indexes ahead of a bulk load; createSecondaryIndexes
+     * rebuilds them afterwards.
+     */
+    static void dropSecondaryIndexes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String[] index : SECONDARY_INDEXES) {
+                stmt.execute("DROP INDEX IF EXISTS " + index[0]);
+            }
+        }
+    }
+
+    /**
+     * A single-row counter that changes whenever restaurants or food change,
+     * whichever process (or tool) made the change. CatalogCache polls it.
+     */
+    private static void createCatalogVersionTriggers(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS catalog_version (\n"
+                    + " id integer PRIMARY KEY CHECK (id = 1),\n"
+                    + " version integer NOT NULL\n"
+                    + ")");
+            stmt.execute("INSERT OR IGNORE INTO catalog_version(id, version) VALUES (1, 0)");
+
+            for (String table : new String[] { "restaurants", "food" }) {
+                for (String event : new String[] { "INSERT", "UPDATE", "DELETE" }) {
+                    stmt.execute("CREATE TRIGGER IF NOT EXISTS catalog_" + table + "_" + event.toLowerCase()
+                            + " AFTER " + event + " ON " + table
+                            + " BEGIN UPDATE catalog_version SET version = version + 1 WHERE id = 1; END");
+                }
+            }
+        }
+    }
+
+    private static long getCatalogVersion() {
+        try (Connection conn = connect()) {
+            if (conn == null) {
+                return -1;
+            }
+            try (Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery("SELECT version FROM catalog_version WHERE id = 1")) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        } catch (SQLException e) {
+            // Table missing (schema not migrated yet): rely on in-process invalidation only
+            return -1;
+        }
+    }
+
+    /**
+     * Catalog cache in front of getRestaurantById, getFoodByName and lazy menus;
+     * exposed for its hit/miss/eviction counters.
+     */
+    public static CatalogCache getCatalogCache() {
+        return CATALOG;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // INDEXED QUERIES - run by the lookups below and by checkQueryPlans
+    // ═══════════════════════════════════════════════════════════════════
+    private static final String RESTAURANT_WITH_MENU_SQL = "SELECT r.id AS restaurant_id, r.name AS restaurant_name,\n"
+            + " f.id AS food_id, f.name AS food_name, f.type, f.price_cents\n"
+            + " FROM restaurants r LEFT JOIN food f ON f.restaurant_id = r.id\n"
+            + " WHERE r.id = ?\n"
+            + " ORDER BY f.id";
+    private static final String RESTAURANT_ID_FOR_FOOD_SQL = "SELECT restaurant_id FROM food WHERE name = ? LIMIT 1";
+    private static final String FOOD_BY_NAME_SQL =
+            "SELECT id, name, type, price_cents, restaurant_id FROM food WHERE name = ?";
+    private static final String FOOD_BY_ID_SQL =
+            "SELECT id, name, type, price_cents, restaurant_id FROM food WHERE id = ?";
+    private static final String ORDER_ITEMS_SQL =
+            "SELECT food_id, food_name, quantity FROM order_items WHERE order_id = ?";
+    private static final String ORDERS_FOR_RESTAURANT_SINCE_SQL =
+            "SELECT id, date, total_cents FROM orders WHERE restaurant_id = ? AND id > ? ORDER BY id LIMIT ?";
+    private static final String COUNT_ORDERS_FOR_RESTAURANT_SQL = "SELECT COUNT(*) FROM orders WHERE restaurant_id = ?";
+
+    /**
+     * Keyset page query on (date, id), optionally for one restaurant and
+     * optionally resuming after a cursor.
+     */
+    private static String orderPageSql(boolean forRestaurant, boolean afterCursor) {
+        StringBuilder sql = new StringBuilder("SELECT id, date, total_cents FROM orders");
+        List<String> conditions = new ArrayList<>();
+        if (forRestaurant)
+            conditions.add("restaurant_id = ?");
+        if (afterCursor)
+            conditions.add("(date, id) < (?, ?)");
+        if (!conditions.isEmpty())
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        sql.append(" ORDER BY date DESC, id DESC LIMIT ?");
+        return sql.toString();
+    }
+
+    private static String orderItemsDescriptionsSql(int orderCount) {
+        return "SELECT order_id, food_name, quantity FROM order_items WHERE order_id IN ("
+                + placeholders(orderCount) + ") ORDER BY order_id, id";
+    }
+
+    private static final String[] INDEXED_QUERIES = {
+            RESTAURANT_WITH_MENU_SQL,
+            RESTAURANT_ID_FOR_FOOD_SQL,
+            FOOD_BY_NAME_SQL,
+            FOOD_BY_ID_SQL,
+            ORDER_ITEMS_SQL,
+            ORDERS_FOR_RESTAURANT_SINCE_SQL,
+            COUNT_ORDERS_FOR_RESTAURANT_SQL,
+            orderPageSql(false, false),
+            orderPageSql(false, true),
+            orderPageSql(true, false),
+            orderPageSql(true, true),
+            orderItemsDescriptionsSql(2),
+            OrderServer.ORDER_ID_BY_KEY_SQL,
+            OrderServer.ORDER_IDS_BY_KEYS_SQL_PREFIX + "?, ?)",
+    };
+
+    /**
+     * Run EXPLAIN QUERY PLAN on the hot lookup queries and report any that fall
+     * back to a full table scan, or could not be checked at all. Returns an
+     * empty list when every query uses an index. Main --check-query-plans
+     * exits non-zero on a non-empty list.
+     */
+    public static List<String> checkQueryPlans() {
+        List<String> fullScans = new ArrayList<>();
+
+        try (Connection conn = connect();
+                Statement stmt = conn.createStatement()) {
+            for (String sql : INDEXED_QUERIES) {
+                try (ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+                    while (rs.next()) {
+                        String detail = rs.getString("detail");
+                        // "SCAN food" / "SCAN TABLE food" without "USING ... INDEX" is a full scan
+                        if (detail.startsWith("SCAN") && !detail.contains("INDEX")) {
+                            fullScans.add(sql + "  ->  " + detail);
+                        }
+                    }
+                }
             }
         } catch (SQLException e) {
-            // Column might already exist or other issue
-            System.out.println("Schema migration note: " + e.getMessage());
+            fullScans.add("query plan check failed: " + e.getMessage());
         }
+        return fullScans;
     }
 
     public static int addRestaurant(String name) {
         String sql = "INSERT INTO restaurants(name) VALUES(?)";
         int id = -1;
 
-        try (Connection conn = connect();
+        try (Connection conn = connectForWrite();
                 PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setString(1, name);
             pstmt.executeUpdate();
@@ -127,42 +421,73 @@ public class DatabaseManager {
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
+        if (id != -1) {
+            notifyMenuChanged(id);
+        }
         return id;
     }
 
-    public static void addFood(String name, String type, double price, int restaurantId) {
-        String sql = "INSERT INTO food(name, type, price, restaurant_id) VALUES(?,?,?,?)";
+    public static void addFood(String name, String type, long priceCents, int restaurantId) {
+        String sql = "INSERT INTO food(name, type, price_cents, restaurant_id) VALUES(?,?,?,?)";
 
-        try (Connection conn = connect();
+        try (Connection conn = connectForWrite();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, name);
             pstmt.setString(2, type);
-            pstmt.setDouble(3, price);
+            pstmt.setLong(3, priceCents);
             pstmt.setInt(4, restaurantId);
             pstmt.executeUpdate();
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
+        CATALOG.invalidateAll();
+        notifyMenuChanged(restaurantId);
     }
 
-    public static void updateFood(int foodId, String name, String type, double price) {
-        String sql = "UPDATE food SET name = ?, type = ?, price = ? WHERE id = ?";
+    public static void updateFood(int foodId, String name, String type, long priceCents) {
+        String sql = "UPDATE food SET name = ?, type = ?, price_cents = ? WHERE id = ?";
+        int restaurantId = restaurantIdOfFood(foodId);
 
-        try (Connection conn = connect();
+        try (Connection conn = connectForWrite();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, name);
             pstmt.setString(2, type);
-            pstmt.setDouble(3, price);
+            pstmt.setLong(3, priceCents);
             pstmt.setInt(4, foodId);
             pstmt.executeUpdate();
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
+        CATALOG.invalidateAll();
+        notifyMenuChanged(restaurantId);
     }
 
+    /**
+     * Load every restaurant with its full menu in a single joined scan.
+     */
     public static List<Restaurant> getAllRestaurants() {
+        String sql = "SELECT r.id AS restaurant_id, r.name AS restaurant_name,\n"
+                + " f.id AS food_id, f.name AS food_name, f.type, f.price_cents\n"
+                + " FROM restaurants r LEFT JOIN food f ON f.restaurant_id = r.id\n"
+                + " ORDER BY r.id, f.id";
+
+        try (Connection conn = connect();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+            return readRestaurantsWithMenus(rs);
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Load restaurant ids and names only. Each menu is fetched from the
+     * database the first time Restaurant.getMenu() is called.
+     */
+    public static List<Restaurant> getRestaurantHeaders() {
         List<Restaurant> restaurants = new ArrayList<>();
-        String sql = "SELECT id, name FROM restaurants";
+        String sql = "SELECT id, name FROM restaurants ORDER BY id";
 
         try (Connection conn = connect();
                 Statement stmt = conn.createStatement();
@@ -170,7 +495,8 @@ public class DatabaseManager {
 
             while (rs.next()) {
                 Restaurant restaurant = new Restaurant(rs.getInt("id"), rs.getString("name"));
-                restaurant.setMenu(getMenuForRestaurant(restaurant.getId()));
+                int restaurantId = restaurant.getId();
+                restaurant.setMenuLoader(() -> getMenuForRestaurant(restaurantId));
                 restaurants.add(restaurant);
             }
         } catch (SQLException e) {
@@ -179,224 +505,284 @@ public class DatabaseManager {
         return restaurants;
     }
 
+    /**
+     * Restaurant with its menu, served from the catalog cache when possible.
+     */
     public static Restaurant getRestaurantById(int id) {
-        String sql = "SELECT id, name FROM restaurants WHERE id = ?";
-        Restaurant restaurant = null;
+        return CATALOG.getRestaurant(id, DatabaseManager::loadRestaurantById);
+    }
 
+    private static Restaurant loadRestaurantById(int id) {
         try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                PreparedStatement pstmt = conn.prepareStatement(RESTAURANT_WITH_MENU_SQL)) {
             pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                restaurant = new Restaurant(rs.getInt("id"), rs.getString("name"));
-                restaurant.setMenu(getMenuForRestaurant(id));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                List<Restaurant> restaurants = readRestaurantsWithMenus(rs);
+                return restaurants.isEmpty() ? null : restaurants.get(0);
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
-        return restaurant;
+        return null;
     }
 
-    private static Menu getMenuForRestaurant(int restaurantId) {
-        Menu menu = new Menu();
-        String sql = "SELECT id, name, type, price FROM food WHERE restaurant_id = ?";
-
-        try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, restaurantId);
-            ResultSet rs = pstmt.executeQuery();
+    /**
+     * Build the Restaurant/Menu graph from a restaurants LEFT JOIN food result
+     * ordered by restaurant id. Restaurants without food come back with one row
+     * whose food columns are NULL.
+     */
+    private static List<Restaurant> readRestaurantsWithMenus(ResultSet rs) throws SQLException {
+        List<Restaurant> restaurants = new ArrayList<>();
+        Restaurant current = null;
 
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String name = rs.getString("name");
-                String type = rs.getString("type");
-                double price = rs.getDouble("price");
+        while (rs.next()) {
+            int restaurantId = rs.getInt("restaurant_id");
+            if (current == null || current.getId() != restaurantId) {
+                current = new Restaurant(restaurantId, rs.getString("restaurant_name"));
+                restaurants.add(current);
+            }
 
-                Food food = new Food(name, type, price);
-                food.setId(id);
-                menu.addFood(food);
+            int foodId = rs.getInt("food_id");
+            if (rs.wasNull()) {
+                continue;
             }
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
+
+            Food food = new Food(rs.getString("food_name"), rs.getString("type"), rs.getLong("price_cents"));
+            food.setId(foodId);
+            food.setRestaurantId(restaurantId);
+            current.getMenu().addFood(food);
         }
-        return menu;
+        return restaurants;
+    }
+
+    private static Menu getMenuForRestaurant(int restaurantId) {
+        return CATALOG.getMenu(restaurantId, DatabaseManager::loadRestaurantById);
     }
 
     public static void deleteFood(int foodId) {
         String sql = "DELETE FROM food WHERE id = ?";
+        int restaurantId = restaurantIdOfFood(foodId);
 
-        try (Connection conn = connect();
+        try (Connection conn = connectForWrite();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, foodId);
             pstmt.executeUpdate();
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
+        CATALOG.invalidateAll();
+        notifyMenuChanged(restaurantId);
+    }
+
+    /**
+     * Restaurant a food belongs to, or 0 if unknown; only used to scope
+     * change notifications.
+     */
+    private static int restaurantIdOfFood(int foodId) {
+        Food food = getFoodById(foodId);
+        return food == null ? 0 : food.getRestaurantId();
     }
 
     public static void deleteRestaurant(int restaurantId) {
         String sqlFood = "DELETE FROM food WHERE restaurant_id = ?";
         String sqlRestaurant = "DELETE FROM restaurants WHERE id = ?";
 
-        try (Connection conn = connect();
+        try (Connection conn = connectForWrite();
                 PreparedStatement pstmt = conn.prepareStatement(sqlFood)) {
             pstmt.setInt(1, restaurantId);
             pstmt.executeUpdate();
 
-            PreparedStatement pstmt2 = conn.prepareStatement(sqlRestaurant);
-            pstmt2.setInt(1, restaurantId);
-            pstmt2.executeUpdate();
+            try (PreparedStatement pstmt2 = conn.prepareStatement(sqlRestaurant)) {
+                pstmt2.setInt(1, restaurantId);
+                pstmt2.executeUpdate();
+            }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
+        CATALOG.invalidateAll();
+        notifyMenuChanged(restaurantId);
     }
 
     // ═══════════════════════════════════════════════════════════════════
     // PLACE ORDER - Now uses server for database operations
     // ═══════════════════════════════════════════════════════════════════
-    public static boolean placeOrder(List<BasketItem> items, double totalAmount) {
+    public static boolean placeOrder(List<BasketItem> items, long totalCents) {
         if (items.isEmpty())
             return false;
 
-        // Get restaurant_id from first item
-        int restaurantId = getRestaurantIdForFood(items.get(0).getFood().getName());
+        int restaurantId = restaurantIdOf(items.get(0));
 
-        // Try to send order to server first
-        String serverResponse = sendOrderToServer(items, totalAmount, restaurantId);
-
-        if (serverResponse != null && serverResponse.startsWith("OK")) {
-            System.out.println("✓ Order processed by server");
-            return true;
-        }
-
-        // Fallback: Store locally if server unavailable
-        System.out.println("⚠ Server unavailable, storing order locally...");
-        return placeOrderLocally(items, totalAmount, restaurantId);
+        List<OrderServerClient.OrderRequest> requests = new ArrayList<>();
+        requests.add(new OrderServerClient.OrderRequest(restaurantId, totalCents, items, newOrderKey()));
+        return submitOrders(requests).getPlaced() == 1;
     }
 
     /**
      * Split basket items by restaurant and create separate orders
-     * Returns number of orders created, or -1 on failure
+     * Returns what became of them, or null if the basket is empty
      */
-    public static int placeOrdersSplitByRestaurant(List<BasketItem> items, double totalAmount) {
+    public static OrderPlacement placeOrdersSplitByRestaurant(List<BasketItem> items, long totalCents) {
         if (items.isEmpty())
-            return -1;
+            return null;
 
         // Group items by restaurant
         java.util.Map<Integer, List<BasketItem>> itemsByRestaurant = new java.util.HashMap<>();
 
         for (BasketItem item : items) {
-            int restaurantId = getRestaurantIdForFood(item.getFood().getName());
+            int restaurantId = restaurantIdOf(item);
             itemsByRestaurant.computeIfAbsent(restaurantId, k -> new ArrayList<>()).add(item);
         }
 
-        int ordersCreated = 0;
-
-        for (java.util.Map.Entry<Integer, List<BasketItem>> entry : itemsByRestaurant.entrySet()) {
-            int restaurantId = entry.getKey();
-            List<BasketItem> restaurantItems = entry.getValue();
+        // Send every restaurant's order over one connection
+        List<OrderServerClient.OrderRequest> requests = new ArrayList<>();
+        for (int restaurantId : itemsByRestaurant.keySet()) {
+            List<BasketItem> restaurantItems = itemsByRestaurant.get(restaurantId);
 
             // Calculate subtotal for this restaurant's items
-            double subtotal = restaurantItems.stream()
-                    .mapToDouble(BasketItem::getTotalPrice)
-                    .sum();
+            long subtotal = 0;
+            for (BasketItem item : restaurantItems) {
+                subtotal = Math.addExact(subtotal, item.getTotalCents());
+            }
+            requests.add(new OrderServerClient.OrderRequest(restaurantId, subtotal, restaurantItems,
+                    newOrderKey()));
+        }
 
-            // Try server first, then fallback to local
-            String serverResponse = sendOrderToServer(restaurantItems, subtotal, restaurantId);
+        return submitOrders(requests);
+    }
 
-            boolean success;
-            if (serverResponse != null && serverResponse.startsWith("OK")) {
-                success = true;
-            } else {
-                success = placeOrderLocally(restaurantItems, subtotal, restaurantId);
-            }
+    /**
+     * What became of a checkout's orders. Stored orders are in the server's
+     * database; queued ones wait in the outbox and may still be turned down
+     * (see setOrderOutboxListener). Rejected orders were refused by the
+     * server straight away, or could not even be queued; they are not
+     * charged, and their items come back so they can stay in the basket.
+     */
+    public static class OrderPlacement {
+        private final int stored;
+        private final int queued;
+        private final int rejected;
+        private final long chargedCents;
+        private final List<BasketItem> rejectedItems;
+        private final List<String> rejectionReasons;
+
+        OrderPlacement(int stored, int queued, long chargedCents, List<BasketItem> rejectedItems,
+                List<String> rejectionReasons) {
+            this.stored = stored;
+            this.queued = queued;
+            this.rejected = rejectionReasons.size();
+            this.chargedCents = chargedCents;
+            this.rejectedItems = java.util.Collections.unmodifiableList(rejectedItems);
+            this.rejectionReasons = java.util.Collections.unmodifiableList(rejectionReasons);
+        }
 
-            if (success) {
-                ordersCreated++;
-            }
+        public int getStored() {
+            return stored;
         }
 
-        return ordersCreated;
+        public int getQueued() {
+            return queued;
+        }
+
+        public int getPlaced() {
+            return stored + queued;
+        }
+
+        public int getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Items of the rejected orders, the same objects that were passed in.
+         */
+        public List<BasketItem> getRejectedItems() {
+            return rejectedItems;
+        }
+
+        /**
+         * One reason per rejected order.
+         */
+        public List<String> getRejectionReasons() {
+            return rejectionReasons;
+        }
+
+        /**
+         * Total of the stored and queued orders, the amount to take from the wallet.
+         */
+        public long getChargedCents() {
+            return chargedCents;
+        }
     }
 
     /**
-     * Store order in local database (fallback when server unavailable)
+     * Send orders to the server and queue any it did not store (unreachable,
+     * timed out, failed to store) in the outbox, whose forwarder delivers them
+     * once the server is back.
      */
-    private static boolean placeOrderLocally(List<BasketItem> items, double totalAmount, int restaurantId) {
-        String insertOrder = "INSERT INTO orders(date, total_amount, restaurant_id) VALUES(?,?,?)";
-        String insertOrderItem = "INSERT INTO order_items(order_id, food_name, quantity, price) VALUES(?,?,?,?)";
-
-        java.time.LocalDateTime now = java.time.LocalDateTime.now();
-        java.time.format.DateTimeFormatter formatter = java.time.format.DateTimeFormatter
-                .ofPattern("yyyy-MM-dd HH:mm:ss");
-        String dateStr = now.format(formatter);
+    private static OrderPlacement submitOrders(List<OrderServerClient.OrderRequest> requests) {
+        List<String> responses = sendOrdersToServer(requests);
 
-        Connection conn = null;
-        try {
-            conn = connect();
-            conn.setAutoCommit(false);
-
-            int orderId = -1;
-            try (PreparedStatement pstmt = conn.prepareStatement(insertOrder, Statement.RETURN_GENERATED_KEYS)) {
-                pstmt.setString(1, dateStr);
-                pstmt.setDouble(2, totalAmount);
-                pstmt.setInt(3, restaurantId);
-                pstmt.executeUpdate();
-
-                try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        orderId = rs.getInt(1);
-                    }
-                }
-            }
+        int stored = 0;
+        long chargedCents = 0;
+        List<BasketItem> rejectedItems = new ArrayList<>();
+        List<String> rejectionReasons = new ArrayList<>();
+        List<OrderServerClient.OrderRequest> unsent = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String serverResponse = responses.get(i);
 
-            if (orderId != -1) {
-                try (PreparedStatement pstmtItem = conn.prepareStatement(insertOrderItem)) {
-                    for (BasketItem item : items) {
-                        pstmtItem.setInt(1, orderId);
-                        pstmtItem.setString(2, item.getFood().getName());
-                        pstmtItem.setInt(3, item.getQuantity());
-                        pstmtItem.setDouble(4, item.getFood().getPrice());
-                        pstmtItem.addBatch();
-                    }
-                    pstmtItem.executeBatch();
-                }
-                conn.commit();
-                return true;
+            if (serverResponse != null && serverResponse.startsWith("OK")) {
+                stored++;
+                chargedCents = Math.addExact(chargedCents, requests.get(i).totalCents);
+            } else if (serverResponse != null && serverResponse.startsWith("REJECTED")) {
+                // The server checked the order and refused it (e.g. a stale price); queueing it would not help
+                System.out.println("✗ Order rejected by server: " + serverResponse.substring(9));
+                rejectedItems.addAll(requests.get(i).items);
+                rejectionReasons.add(serverResponse.substring(9));
             } else {
-                conn.rollback();
-                return false;
+                unsent.add(requests.get(i));
             }
+        }
 
-        } catch (SQLException e) {
-            System.out.println("SQL Error: " + e.getMessage());
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    System.out.println(ex.getMessage());
+        int queued = 0;
+        if (!unsent.isEmpty()) {
+            try {
+                getOrderOutbox().add(unsent);
+                queued = unsent.size();
+                for (OrderServerClient.OrderRequest request : unsent) {
+                    chargedCents = Math.addExact(chargedCents, request.totalCents);
                 }
-            }
-            return false;
-        } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                } catch (SQLException e) {
-                    System.out.println(e.getMessage());
+                System.out.println("⚠ Server unavailable, queued " + unsent.size() + " order(s) for delivery");
+            } catch (IOException e) {
+                System.out.println("❌ Could not queue order: " + e.getMessage());
+                for (OrderServerClient.OrderRequest request : unsent) {
+                    rejectedItems.addAll(request.items);
+                    rejectionReasons.add("Server unavailable");
                 }
             }
         }
+        return new OrderPlacement(stored, queued, chargedCents, rejectedItems, rejectionReasons);
+    }
+
+    /**
+     * A new order's idempotency key, sent with every attempt to store it.
+     */
+    private static String newOrderKey() {
+        return java.util.UUID.randomUUID().toString();
+    }
+
+    /**
+     * Restaurant of a basket item. Foods loaded from the catalog carry it, so
+     * the name lookup is only needed for items built without one.
+     */
+    private static int restaurantIdOf(BasketItem item) {
+        int restaurantId = item.getRestaurantId();
+        return restaurantId > 0 ? restaurantId : getRestaurantIdForFood(item.getFood().getName());
     }
 
     private static int getRestaurantIdForFood(String foodName) {
-        String sql = "SELECT restaurant_id FROM food WHERE name = ? LIMIT 1";
         int restaurantId = -1;
 
         try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                PreparedStatement pstmt = conn.prepareStatement(RESTAURANT_ID_FOR_FOOD_SQL)) {
             pstmt.setString(1, foodName);
             ResultSet rs = pstmt.executeQuery();
 
@@ -410,17 +796,43 @@ public class DatabaseManager {
     }
 
     public static Food getFoodByName(String foodName) {
-        String sql = "SELECT id, name, type, price FROM food WHERE name = ?";
+        return CATALOG.getFoodByName(foodName, DatabaseManager::loadFoodByName);
+    }
+
+    private static Food loadFoodByName(String foodName) {
         Food food = null;
 
         try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                PreparedStatement pstmt = conn.prepareStatement(FOOD_BY_NAME_SQL)) {
             pstmt.setString(1, foodName);
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                food = new Food(rs.getString("name"), rs.getString("type"), rs.getDouble("price"));
-                food.setId(rs.getInt("id"));
+                food = readFood(rs);
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+        return food;
+    }
+
+    /**
+     * Primary-key lookup, served from the catalog cache when possible.
+     */
+    public static Food getFoodById(int foodId) {
+        return CATALOG.getFoodById(foodId, DatabaseManager::loadFoodById);
+    }
+
+    private static Food loadFoodById(int foodId) {
+        Food food = null;
+
+        try (Connection conn = connect();
+                PreparedStatement pstmt = conn.prepareStatement(FOOD_BY_ID_SQL)) {
+            pstmt.setInt(1, foodId);
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                food = readFood(rs);
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
@@ -428,20 +840,36 @@ public class DatabaseManager {
         return food;
     }
 
+    private static Food readFood(ResultSet rs) throws SQLException {
+        Food food = new Food(rs.getString("name"), rs.getString("type"), rs.getLong("price_cents"));
+        food.setId(rs.getInt("id"));
+        food.setRestaurantId(rs.getInt("restaurant_id"));
+        return food;
+    }
+
+    /**
+     * The current version of an item's food: by id, or by name for rows and
+     * basket items that predate food ids.
+     */
+    public static Food getCurrentFood(Food food) {
+        return food.getId() > 0 ? getFoodById(food.getId()) : getFoodByName(food.getName());
+    }
+
     public static List<BasketItem> getOrderItems(int orderId) {
         List<BasketItem> items = new ArrayList<>();
-        String sql = "SELECT food_name, quantity FROM order_items WHERE order_id = ?";
-
         try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                PreparedStatement pstmt = conn.prepareStatement(ORDER_ITEMS_SQL)) {
             pstmt.setInt(1, orderId);
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
+                int foodId = rs.getInt("food_id");
+                boolean hasFoodId = !rs.wasNull();
                 String foodName = rs.getString("food_name");
                 int quantity = rs.getInt("quantity");
 
-                Food food = getFoodByName(foodName);
+                // Reprice from the current menu; rows stored before food ids fall back to the name
+                Food food = hasFoodId ? getFoodById(foodId) : getFoodByName(foodName);
                 if (food != null) {
                     items.add(new BasketItem(food, quantity));
                 }
@@ -452,22 +880,51 @@ public class DatabaseManager {
         return items;
     }
 
-    public static List<Order> getOrderHistory() {
-        List<Order> orders = new ArrayList<>();
-        String sql = "SELECT id, date, total_amount FROM orders ORDER BY date DESC";
+    /**
+     * Fetch one page of the global order history, newest first. Pass a null
+     * cursor for the first page and the previous page's next cursor after that.
+     */
+    public static OrderPage<Order> getOrderHistoryPage(String cursor, int pageSize) {
+        return queryOrderPage(null, cursor, pageSize, Order::new);
+    }
 
-        try (Connection conn = connect();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
+    /**
+     * Fetch one page of a restaurant's orders, newest first.
+     */
+    public static OrderPage<RestaurantOrder> getOrdersForRestaurantPage(int restaurantId, String cursor,
+            int pageSize) {
+        return queryOrderPage(restaurantId, cursor, pageSize, RestaurantOrder::new);
+    }
 
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String date = rs.getString("date");
-                double total = rs.getDouble("total_amount");
+    /**
+     * A restaurant's orders with ids above afterOrderId, oldest first, so an
+     * open order list can add just what arrived since it last looked. At most
+     * limit rows are returned.
+     */
+    public static List<RestaurantOrder> getOrdersForRestaurantSince(int restaurantId, int afterOrderId, int limit) {
+        List<RestaurantOrder> orders = new ArrayList<>();
 
-                String itemsDesc = getOrderItemsDescription(id);
+        try (Connection conn = connect();
+                PreparedStatement pstmt = conn.prepareStatement(ORDERS_FOR_RESTAURANT_SINCE_SQL)) {
+            pstmt.setInt(1, restaurantId);
+            pstmt.setInt(2, afterOrderId);
+            pstmt.setInt(3, limit);
+
+            List<Integer> ids = new ArrayList<>();
+            List<String> dates = new ArrayList<>();
+            List<Long> totals = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt("id"));
+                    dates.add(rs.getString("date"));
+                    totals.add(rs.getLong("total_cents"));
+                }
+            }
 
-                orders.add(new Order(id, date, total, itemsDesc));
+            java.util.Map<Integer, String> descriptions = getOrderItemsDescriptions(conn, ids);
+            for (int i = 0; i < ids.size(); i++) {
+                int id = ids.get(i);
+                orders.add(new RestaurantOrder(id, dates.get(i), totals.get(i), descriptions.getOrDefault(id, "")));
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
@@ -475,49 +932,120 @@ public class DatabaseManager {
         return orders;
     }
 
-    private static String getOrderItemsDescription(int orderId) {
-        StringBuilder sb = new StringBuilder();
-        String sql = "SELECT food_name, quantity FROM order_items WHERE order_id = ?";
-
+    public static int countOrdersForRestaurant(int restaurantId) {
         try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, orderId);
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                if (sb.length() > 0)
-                    sb.append(", ");
-                sb.append(rs.getString("food_name"))
-                        .append(" x")
-                        .append(rs.getInt("quantity"));
+                PreparedStatement pstmt = conn.prepareStatement(COUNT_ORDERS_FOR_RESTAURANT_SQL)) {
+            pstmt.setInt(1, restaurantId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
-        return sb.toString();
+        return 0;
     }
 
-    public static List<RestaurantOrder> getOrdersForRestaurant(int restaurantId) {
-        List<RestaurantOrder> orders = new ArrayList<>();
-        String sql = "SELECT id, date, total_amount FROM orders WHERE restaurant_id = ? ORDER BY date DESC";
+    private interface OrderRowFactory<T> {
+        T create(int id, String date, long totalCents, String itemsDescription);
+    }
+
+    /**
+     * Keyset query on (date, id): rows strictly older than the cursor, one row
+     * more than requested so we know whether another page exists.
+     */
+    private static <T> OrderPage<T> queryOrderPage(Integer restaurantId, String cursor, int pageSize,
+            OrderRowFactory<T> factory) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        List<T> orders = new ArrayList<>();
 
+        String nextCursor = null;
         try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, restaurantId);
-            ResultSet rs = pstmt.executeQuery();
+                PreparedStatement pstmt = conn.prepareStatement(orderPageSql(restaurantId != null, cursor != null))) {
+            int param = 1;
+            if (restaurantId != null)
+                pstmt.setInt(param++, restaurantId);
+            if (cursor != null) {
+                pstmt.setString(param++, OrderPage.decodeCursorDate(cursor));
+                pstmt.setInt(param++, OrderPage.decodeCursorId(cursor));
+            }
+            pstmt.setInt(param, pageSize + 1);
+
+            List<Integer> ids = new ArrayList<>();
+            List<String> dates = new ArrayList<>();
+            List<Long> totals = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt("id"));
+                    dates.add(rs.getString("date"));
+                    totals.add(rs.getLong("total_cents"));
+                }
+            }
 
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String date = rs.getString("date");
-                double total = rs.getDouble("total_amount");
-                String itemsDesc = getOrderItemsDescription(id);
+            if (ids.size() > pageSize) {
+                ids.remove(pageSize);
+                dates.remove(pageSize);
+                totals.remove(pageSize);
+                nextCursor = OrderPage.encodeCursor(dates.get(pageSize - 1), ids.get(pageSize - 1));
+            }
 
-                orders.add(new RestaurantOrder(id, date, total, itemsDesc));
+            java.util.Map<Integer, String> descriptions = getOrderItemsDescriptions(conn, ids);
+            for (int i = 0; i < ids.size(); i++) {
+                int id = ids.get(i);
+                orders.add(factory.create(id, dates.get(i), totals.get(i), descriptions.getOrDefault(id, "")));
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
-        return orders;
+        return new OrderPage<>(orders, nextCursor);
+    }
+
+    /**
+     * Build "Burger x2, Coke x1" descriptions for a set of orders with one
+     * order_items query per chunk of ids, instead of one query per order.
+     */
+    private static java.util.Map<Integer, String> getOrderItemsDescriptions(Connection conn, List<Integer> orderIds)
+            throws SQLException {
+        java.util.Map<Integer, StringBuilder> builders = new java.util.HashMap<>();
+
+        for (int from = 0; from < orderIds.size(); from += MAX_IN_CLAUSE_IDS) {
+            List<Integer> chunk = orderIds.subList(from, Math.min(from + MAX_IN_CLAUSE_IDS, orderIds.size()));
+            try (PreparedStatement pstmt = conn.prepareStatement(orderItemsDescriptionsSql(chunk.size()))) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setInt(i + 1, chunk.get(i));
+                }
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        StringBuilder sb = builders.computeIfAbsent(rs.getInt("order_id"), k -> new StringBuilder());
+                        if (sb.length() > 0)
+                            sb.append(", ");
+                        sb.append(rs.getString("food_name"))
+                                .append(" x")
+                                .append(rs.getInt("quantity"));
+                    }
+                }
+            }
+        }
+
+        java.util.Map<Integer, String> descriptions = new java.util.HashMap<>();
+        for (java.util.Map.Entry<Integer, StringBuilder> entry : builders.entrySet()) {
+            descriptions.put(entry.getKey(), entry.getValue().toString());
+        }
+        return descriptions;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append('?');
+        }
+        return sb.toString();
     }
 
     public static void clearDatabase() {
@@ -526,7 +1054,7 @@ public class DatabaseManager {
         String sqlOrderItems = "DELETE FROM order_items";
         String sqlOrders = "DELETE FROM orders";
 
-        try (Connection conn = connect();
+        try (Connection conn = connectForWrite();
                 Statement stmt = conn.createStatement()) {
             stmt.execute(sqlOrderItems);
             stmt.execute(sqlFood);
@@ -536,39 +1064,111 @@ public class DatabaseManager {
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
+        CATALOG.invalidateAll();
+        notifyMenuChanged(0);
     }
 
     // ═══════════════════════════════════════════════════════════════════
     // SERVER COMMUNICATION - Enhanced with response handling
     // ═══════════════════════════════════════════════════════════════════
-    private static String sendOrderToServer(List<BasketItem> items, double totalAmount, int restaurantId) {
-        String serverIP = "127.0.0.1";
+    private static OrderServerClient serverClient;
 
-        try (Socket socket = new Socket(serverIP, port);
-                PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
-
-            // Send order data in a parseable format
-            out.println("ORDER");
-            out.println("RESTAURANT_ID:" + restaurantId);
-            out.println("TOTAL:" + totalAmount);
-            out.println("ITEMS:" + items.size());
+    private static synchronized OrderServerClient getServerClient() {
+        if (serverClient == null) {
+            serverClient = new OrderServerClient("127.0.0.1", port);
+        }
+        return serverClient;
+    }
 
-            for (BasketItem item : items) {
-                out.println("ITEM:" + item.getFood().getName() + "|" +
-                        item.getQuantity() + "|" +
-                        item.getFood().getPrice());
+    /**
+     * Pipeline orders to the server on the shared persistent connection.
+     * Returns one response per order; null entries mean the order did not reach
+     * the server. While the breaker is open the server is not tried at all.
+     */
+    private static List<String> sendOrdersToServer(List<OrderServerClient.OrderRequest> requests) {
+        if (SERVER_BREAKER.allowRequest()) {
+            try {
+                List<String> responses = getServerClient().sendOrders(requests);
+                SERVER_BREAKER.recordSuccess();
+                return responses;
+            } catch (Exception e) {
+                SERVER_BREAKER.recordFailure();
+                System.out.println("⚠ Could not send order to server: " + e.getMessage());
             }
-            out.println("END_ORDER");
+        }
+        List<String> failed = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            failed.add(null);
+        }
+        return failed;
+    }
 
-            // Wait for server response
-            socket.setSoTimeout(5000); // 5 second timeout
-            String response = in.readLine();
-            return response;
+    // ═══════════════════════════════════════════════════════════════════
+    // ORDER OUTBOX - orders waiting for the server, kept on disk
+    // ═══════════════════════════════════════════════════════════════════
+    // Shared by checkout and the outbox forwarder, so neither waits on a server the other found dead
+    private static final CircuitBreaker SERVER_BREAKER = CircuitBreaker.fromSystemProperties("Order server");
+    private static OrderOutbox orderOutbox;
 
-        } catch (Exception e) {
-            System.out.println("⚠ Could not send order to server: " + e.getMessage());
-            return null;
+    /**
+     * The outbox, opened on first use. Its forwarder has a connection of its
+     * own, so replays never queue behind a checkout.
+     */
+    private static synchronized OrderOutbox getOrderOutbox() throws IOException {
+        if (orderOutbox == null) {
+            OrderOutbox outbox = OrderOutbox.fromSystemProperties(new java.io.File(APP_DIR, "order_outbox.dat"),
+                    new OrderServerClient("127.0.0.1", port), SERVER_BREAKER);
+            outbox.start();
+            orderOutbox = outbox;
         }
+        return orderOutbox;
+    }
+
+    /**
+     * Be told when the server turns down an order that was queued at
+     * checkout, after the customer has already been charged for it. Pass null
+     * to stop listening.
+     */
+    public static void setOrderOutboxListener(OrderOutbox.Listener listener) {
+        try {
+            getOrderOutbox().setListener(listener);
+        } catch (IOException e) {
+            System.out.println("❌ Could not open order outbox: " + e.getMessage());
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CHANGE NOTIFICATIONS - pushed to other GUIs through the server
+    // ═══════════════════════════════════════════════════════════════════
+    private static final ExecutorService NOTIFIER = Executors.newSingleThreadExecutor(
+            ClientExecutor.namedThreads("server-notify-"));
+
+    /**
+     * Subscribe to the server's change events. The caller starts and stops it.
+     */
+    public static ServerEventListener createEventListener(ServerEventListener.Handler handler) {
+        return new ServerEventListener("127.0.0.1", port, handler);
+    }
+
+    /**
+     * Tell subscribed GUIs that a restaurant's menu (or, for 0, the catalog
+     * in general) changed.
+     */
+    public static void notifyMenuChanged(int restaurantId) {
+        notifyServer("MENU_CHANGED:" + restaurantId);
+    }
+
+    /**
+     * Best effort and off the caller's thread: if the server is down its
+     * subscribers are disconnected too and are polling instead.
+     */
+    private static void notifyServer(String notification) {
+        NOTIFIER.execute(() -> {
+            try {
+                getServerClient().sendNotification(notification);
+            } catch (Exception e) {
+                System.out.println("⚠ Could not notify server: " + e.getMessage());
+            }
+        });
     }
 }
@@ -0,0 +1,115 @@
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fan-out of change events to subscribed GUI clients.
+ *
+ * A client that sends SUBSCRIBE keeps its connection open and receives one
+ * line per event instead of polling the database:
+ *
+ * EVENT:NEW_ORDER:orderId:restaurantId
+ * EVENT:MENU_CHANGED:restaurantId (0 when the change is not tied to one restaurant)
+ * EVENT:PING (heartbeat, so clients can tell a quiet server from a dead one)
+ *
+ * Publishing never blocks: each transport queues events for its subscribers
+ * and a subscriber that falls too far behind is dropped. Dropped clients
+ * reconnect and resynchronise from the database.
+ */
+public class EventBroadcaster {
+
+    /**
+     * One subscribed connection, implemented by each transport.
+     */
+    public interface Subscriber {
+        /**
+         * Queue an event line for delivery. Returns false if the subscriber is
+         * closed or its queue is full, in which case it is dropped.
+         */
+        boolean offer(String event);
+
+        void close();
+    }
+
+    public static final String PING = "EVENT:PING";
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService heartbeat;
+
+    // Metrics
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public EventBroadcaster(long heartbeatMs) {
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(ClientExecutor.namedThreads("event-heartbeat-"));
+        if (heartbeatMs > 0) {
+            heartbeat.scheduleWithFixedDelay(() -> deliver(PING), heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Build a broadcaster from foodordering.server.events.heartbeatMs
+     * (default 15000).
+     */
+    public static EventBroadcaster fromSystemProperties() {
+        return new EventBroadcaster(Long.getLong("foodordering.server.events.heartbeatMs", 15000L));
+    }
+
+    public static String newOrder(int orderId, int restaurantId) {
+        return "EVENT:NEW_ORDER:" + orderId + ":" + restaurantId;
+    }
+
+    public static String menuChanged(int restaurantId) {
+        return "EVENT:MENU_CHANGED:" + restaurantId;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // SUBSCRIPTIONS
+    // ═══════════════════════════════════════════════════════════════════
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // PUBLISHING
+    // ═══════════════════════════════════════════════════════════════════
+    public void publish(String event) {
+        published.incrementAndGet();
+        deliver(event);
+    }
+
+    private void deliver(String event) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.offer(event)) {
+                // Too slow or already gone; it will resync from the database on reconnect
+                subscribers.remove(subscriber);
+                dropped.incrementAndGet();
+                subscriber.close();
+            }
+        }
+    }
+
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+        subscribers.clear();
+    }
+
+    public String getStats() {
+        return String.format("events[subscribers=%d] published=%d dropped=%d",
+                getSubscriberCount(), published.get(), dropped.get());
+    }
+}
@@ -2,13 +2,14 @@ public class Food {
     private int id;
     private String name;
     private String type;
-    private double price;
+    private long priceCents;
+    private int restaurantId; // 0 when unknown
 
     // Constructor
-    public Food(String name, String type, double price) {
+    public Food(String name, String type, long priceCents) {
         this.name = name;
         this.type = type;
-        this.price = price;
+        this.priceCents = priceCents;
     }
 
     // Getters
@@ -24,8 +25,12 @@ public class Food {
         return type;
     }
 
-    public double getPrice() {
-        return price;
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    public int getRestaurantId() {
+        return restaurantId;
     }
 
     // Setters
@@ -41,17 +46,29 @@ public class Food {
         this.type = type;
     }
 
-    public void setPrice(double price) {
-        this.price = price;
+    public void setPriceCents(long priceCents) {
+        this.priceCents = priceCents;
+    }
+
+    public void setRestaurantId(int restaurantId) {
+        this.restaurantId = restaurantId;
+    }
+
+    // Independent copy, for work that must not see later changes (e.g. a checkout in progress)
+    public Food copy() {
+        Food food = new Food(name, type, priceCents);
+        food.setId(id);
+        food.setRestaurantId(restaurantId);
+        return food;
     }
 
     // Method to display food information
     public String getDisplayInfo() {
-        return String.format("%s ($%.2f)", name, price);
+        return name + " (" + Money.formatDollars(priceCents) + ")";
     }
 
     @Override
     public String toString() {
-        return String.format("%s: %s - $%.2f", type, name, price);
+        return type + ": " + name + " - " + Money.formatDollars(priceCents);
     }
 }
\ No newline at end of file
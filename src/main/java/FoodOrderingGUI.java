@@ -4,6 +4,7 @@ import java.awt.event.*;
 import java.awt.geom.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class FoodOrderingGUI extends JFrame {
 
@@ -90,6 +91,15 @@ public class FoodOrderingGUI extends JFrame {
     private static final Font FOOD_DETAIL_FONT = new Font(getSansSerifFont(), Font.PLAIN, 12);
     private static final Font BUTTON_FONT = new Font(getSansSerifFont(), Font.BOLD, 13);
     private static final Font PRICE_FONT = new Font(getSansSerifFont(), Font.BOLD, 15);
+    private static final Font BASKET_PRICE_FONT = new Font(getSansSerifFont(), Font.BOLD, 13);
+    private static final Font QUANTITY_FONT = new Font(getSansSerifFont(), Font.PLAIN, 13);
+    private static final Font QUANTITY_BUTTON_FONT = new Font(getSansSerifFont(), Font.BOLD, 12);
+    private static final Font REMOVE_FONT = new Font(getSansSerifFont(), Font.BOLD, 16);
+
+    // Basket rows: an 85px card plus the 8px gap below it
+    private static final int BASKET_ROW_HEIGHT = 93;
+    private static final Color QUANTITY_BUTTON_BG = new Color(240, 235, 230);
+    private static final Cursor HAND_CURSOR = new Cursor(Cursor.HAND_CURSOR);
 
     // ═══════════════════════════════════════════════════════════════════
     // COMPONENTS (stored for theme updates)
@@ -109,17 +119,25 @@ public class FoodOrderingGUI extends JFrame {
     private JList<Food> foodList;
     private DefaultListModel<Food> foodModel;
 
-    private JPanel basketItemsPanel;
-    private List<BasketItem> basketItems;
+    private JList<BasketItem> basketList;
+    private BasketModel basketModel;
+    private BasketCellRenderer basketRenderer;
 
     private JLabel totalLabel;
     private JLabel itemCountLabel;
     private JButton themeToggleBtn;
 
-    private double walletBalance = 100.00;
+    private long walletCents = 100_00;
     private JLabel walletLabel;
 
     private Timer autoRefreshTimer;
+    private ServerEventListener eventListener;
+
+    // All database calls run here; callbacks come back on the event thread
+    private final AsyncDataAccess data = AsyncDataAccess.fromSystemProperties();
+    private boolean orderInProgress;
+
+    private static final int HISTORY_PAGE_SIZE = 50;
 
     public FoodOrderingGUI() {
         setTitle("Delicious Bites - Food Ordering");
@@ -128,45 +146,133 @@ public class FoodOrderingGUI extends JFrame {
         setDefaultCloseOperation(EXIT_ON_CLOSE);
 
         setLayout(new BorderLayout(0, 0));
-        basketItems = new ArrayList<>();
+        basketModel = new BasketModel();
 
         initUI();
         loadRestaurants();
         applyTheme();
         startAutoRefresh();
+
+        // Orders queued while the server was down are charged at checkout; refund any it turns down later
+        DatabaseManager.setOrderOutboxListener((restaurantId, totalCents, reason) ->
+                SwingUtilities.invokeLater(() -> queuedOrderDropped(totalCents, reason)));
     }
 
+    /**
+     * Menu changes are pushed by the server. The 15s poll only runs while the
+     * event subscription is down.
+     */
     private void startAutoRefresh() {
         autoRefreshTimer = new Timer(15000, e -> refreshMenuOnly());
         autoRefreshTimer.start();
+
+        eventListener = DatabaseManager.createEventListener(new ServerEventListener.Handler() {
+            @Override
+            public void onNewOrder(int orderId, int restaurantId) {
+                // Customers only see their own orders, which they placed themselves
+            }
+
+            @Override
+            public void onMenuChanged(int restaurantId) {
+                applyMenuChange(restaurantId);
+            }
+
+            @Override
+            public void onConnectionChanged(boolean connected) {
+                if (connected) {
+                    autoRefreshTimer.stop();
+                    applyMenuChange(0); // Catch up on anything missed while disconnected
+                } else {
+                    autoRefreshTimer.start();
+                }
+            }
+        });
+        eventListener.start();
+    }
+
+    /**
+     * Apply a pushed menu change. Only the selected menu and the basket are
+     * refreshed unless the restaurant list itself changed.
+     */
+    private void applyMenuChange(int restaurantId) {
+        // The event can arrive before the catalog cache's own version check notices
+        DatabaseManager.getCatalogCache().invalidateAll();
+
+        if (restaurantId == 0) {
+            reloadRestaurantsKeepingSelection().thenRun(this::refreshMenuOnly);
+            return;
+        }
+        data.read("restaurant:" + restaurantId, () -> DatabaseManager.getRestaurantById(restaurantId))
+                .thenAccept(restaurant -> {
+                    Restaurant selected = restaurantList.getSelectedValue();
+                    if (isListed(restaurantId) != (restaurant != null)) {
+                        reloadRestaurantsKeepingSelection().thenRun(this::refreshMenuOnly);
+                    } else if (selected != null && selected.getId() == restaurantId) {
+                        refreshMenuOnly();
+                    } else {
+                        refreshBasketPrices();
+                    }
+                });
+    }
+
+    private boolean isListed(int restaurantId) {
+        for (int i = 0; i < restaurantModel.size(); i++) {
+            if (restaurantModel.get(i).getId() == restaurantId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CompletableFuture<Void> reloadRestaurantsKeepingSelection() {
+        Restaurant selected = restaurantList.getSelectedValue();
+        return loadRestaurants().thenRun(() -> {
+            if (selected == null) {
+                return;
+            }
+            for (int i = 0; i < restaurantModel.size(); i++) {
+                if (restaurantModel.get(i).getId() == selected.getId()) {
+                    restaurantList.setSelectedIndex(i);
+                    return;
+                }
+            }
+        });
     }
 
     private void refreshMenuOnly() {
         Restaurant selected = restaurantList.getSelectedValue();
         if (selected != null) {
             // Reload menu for currently selected restaurant
-            Restaurant updated = DatabaseManager.getRestaurantById(selected.getId());
-            if (updated != null) {
-                foodModel.clear();
-                for (Food food : updated.getMenu().getFoodItems()) {
-                    foodModel.addElement(food);
-                }
-            }
+            loadMenu(selected.getId());
         }
 
-        // Update basket prices from database
-        boolean priceChanged = false;
-        for (BasketItem item : basketItems) {
-            Food currentFood = DatabaseManager.getFoodByName(item.getFood().getName());
-            if (currentFood != null && currentFood.getPrice() != item.getFood().getPrice()) {
-                item.getFood().setPrice(currentFood.getPrice());
-                priceChanged = true;
-            }
-        }
+        refreshBasketPrices();
+    }
 
-        if (priceChanged) {
-            updateBasketDisplay();
+    private void refreshBasketPrices() {
+        // Look prices up in the background, then apply them to the same Food objects
+        List<Food> foods = new ArrayList<>();
+        for (BasketItem item : basketModel.getItems()) {
+            foods.add(item.getFood());
+        }
+        if (foods.isEmpty()) {
+            return;
         }
+
+        data.readLatest("basketPrices", "basketPrices", () -> {
+            List<Food> current = new ArrayList<>();
+            for (Food food : foods) {
+                current.add(DatabaseManager.getCurrentFood(food));
+            }
+            return current;
+        }).thenAccept(current -> {
+            for (int i = 0; i < foods.size(); i++) {
+                Food currentFood = current.get(i);
+                if (currentFood != null) {
+                    basketModel.setPrice(foods.get(i), currentFood.getPriceCents());
+                }
+            }
+        });
     }
 
     @Override
@@ -174,6 +280,11 @@ public class FoodOrderingGUI extends JFrame {
         if (autoRefreshTimer != null) {
             autoRefreshTimer.stop();
         }
+        if (eventListener != null) {
+            eventListener.stop();
+        }
+        DatabaseManager.setOrderOutboxListener(null);
+        data.shutdown();
         super.dispose();
     }
 
@@ -278,7 +389,7 @@ public class FoodOrderingGUI extends JFrame {
         themeToggleBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
         themeToggleBtn.addActionListener(e -> toggleTheme());
 
-        walletLabel = new JLabel(String.format("Wallet: $%.2f", walletBalance));
+        walletLabel = new JLabel("Wallet: " + Money.formatDollars(walletCents));
         walletLabel.setFont(SECTION_FONT);
         walletLabel.setForeground(Color.WHITE);
         walletLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 15));
@@ -336,15 +447,40 @@ public class FoodOrderingGUI extends JFrame {
         // ═══════════════════════════════════════════════════════════════
         // RIGHT PANEL - Basket
         // ═══════════════════════════════════════════════════════════════
-        basketItemsPanel = new JPanel();
-        basketItemsPanel.setLayout(new BoxLayout(basketItemsPanel, BoxLayout.Y_AXIS));
-        basketItemsPanel.setOpaque(false);
+        basketRenderer = new BasketCellRenderer();
+        basketList = new JList<>(basketModel);
+        basketList.setCellRenderer(basketRenderer);
+        // Rows are all the same height, so JList never has to render one just to measure it
+        basketList.setFixedCellHeight(BASKET_ROW_HEIGHT);
+        basketList.setOpaque(false);
+        basketList.setFocusable(false);
+        basketList.setSelectionModel(new DefaultListSelectionModel() {
+            @Override
+            public void setSelectionInterval(int index0, int index1) {
+                // Rows are not selectable; clicks go to their controls
+            }
+        });
+        BasketMouseHandler basketMouse = new BasketMouseHandler();
+        basketList.addMouseListener(basketMouse);
+        basketList.addMouseMotionListener(basketMouse);
+        basketModel.addListDataListener(new javax.swing.event.ListDataListener() {
+            @Override
+            public void intervalAdded(javax.swing.event.ListDataEvent e) {
+                updateBasketSummary();
+            }
+
+            @Override
+            public void intervalRemoved(javax.swing.event.ListDataEvent e) {
+                updateBasketSummary();
+            }
 
-        JPanel basketWrapper = new JPanel(new BorderLayout());
-        basketWrapper.setOpaque(false);
-        basketWrapper.add(basketItemsPanel, BorderLayout.NORTH);
+            @Override
+            public void contentsChanged(javax.swing.event.ListDataEvent e) {
+                updateBasketSummary();
+            }
+        });
 
-        JScrollPane basketScroll = new JScrollPane(basketWrapper);
+        JScrollPane basketScroll = new JScrollPane(basketList);
         basketScroll.setBorder(BorderFactory.createEmptyBorder());
         basketScroll.setOpaque(false);
         basketScroll.getViewport().setOpaque(false);
@@ -477,7 +613,7 @@ public class FoodOrderingGUI extends JFrame {
         foodList.setBackground(getBgColor());
         foodList.setSelectionBackground(getFoodSelectionBg());
 
-        updateBasketDisplay();
+        basketList.repaint(); // The renderer picks up the new theme colors
 
         totalPanel.setBackground(getTotalBgColor());
         totalTextLabel.setForeground(getTextColor());
@@ -529,49 +665,6 @@ public class FoodOrderingGUI extends JFrame {
         return panel;
     }
 
-    private JButton createQuantityButton(String text) {
-        JButton button = new JButton(text) {
-            private boolean hover = false;
-            {
-                addMouseListener(new MouseAdapter() {
-                    @Override
-                    public void mouseEntered(MouseEvent e) {
-                        hover = true;
-                        repaint();
-                    }
-
-                    @Override
-                    public void mouseExited(MouseEvent e) {
-                        hover = false;
-                        repaint();
-                    }
-                });
-            }
-
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2d = (Graphics2D) g;
-                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                Color bg = hover ? APPETIZING_ORANGE : (isNightMode ? NIGHT_CARD_ALT : new Color(240, 235, 230));
-                g2d.setColor(bg);
-                g2d.fill(new RoundRectangle2D.Float(0, 0, getWidth(), getHeight(), 10, 10));
-                g2d.setColor(hover ? Color.WHITE : getTextColor());
-                g2d.setFont(getFont());
-                FontMetrics fm = g2d.getFontMetrics();
-                int x = (getWidth() - fm.stringWidth(getText())) / 2;
-                int y = (getHeight() + fm.getAscent() - fm.getDescent()) / 2;
-                g2d.drawString(getText(), x, y);
-            }
-        };
-        button.setFont(new Font(getSansSerifFont(), Font.BOLD, 16));
-        button.setPreferredSize(new Dimension(35, 35));
-        button.setFocusPainted(false);
-        button.setBorderPainted(false);
-        button.setContentAreaFilled(false);
-        button.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        return button;
-    }
-
     private JButton createStyledButton(String text, Color bgColor, Color fgColor) {
         JButton button = new JButton(text) {
             private boolean hover = false;
@@ -694,7 +787,7 @@ public class FoodOrderingGUI extends JFrame {
             detailsPanel.add(Box.createVerticalStrut(4));
             detailsPanel.add(typeLabel);
 
-            JLabel priceLabel = new JLabel(String.format("$%.2f", food.getPrice()));
+            JLabel priceLabel = new JLabel(Money.formatDollars(food.getPriceCents()));
             priceLabel.setFont(PRICE_FONT);
             priceLabel.setForeground(OLIVE_GREEN);
 
@@ -708,23 +801,41 @@ public class FoodOrderingGUI extends JFrame {
     // ═══════════════════════════════════════════════════════════════════
     // DATA LOADING
     // ═══════════════════════════════════════════════════════════════════
-    private void loadRestaurants() {
-        restaurantModel.clear();
-        List<Restaurant> restaurants = DatabaseManager.getAllRestaurants();
-        for (Restaurant r : restaurants) {
-            restaurantModel.addElement(r);
-        }
+    private CompletableFuture<Void> loadRestaurants() {
+        return data.readLatest("restaurants", "restaurants", DatabaseManager::getRestaurantHeaders)
+                .thenAccept(restaurants -> {
+                    restaurantModel.clear();
+                    for (Restaurant r : restaurants) {
+                        restaurantModel.addElement(r);
+                    }
+                });
     }
 
     private void loadMenuForSelectedRestaurant() {
         foodModel.clear();
         Restaurant selected = restaurantList.getSelectedValue();
-        if (selected == null)
+        if (selected == null) {
+            data.cancel("menu");
             return;
-
-        for (Food food : selected.getMenu().getFoodItems()) {
-            foodModel.addElement(food);
         }
+        loadMenu(selected.getId());
+    }
+
+    /**
+     * Show a restaurant's menu once it has loaded. A newer request replaces
+     * this one, so clicking through restaurants quickly only shows the last.
+     */
+    private void loadMenu(int restaurantId) {
+        data.readLatest("menu", "restaurant:" + restaurantId, () -> DatabaseManager.getRestaurantById(restaurantId))
+                .thenAccept(restaurant -> {
+                    if (restaurant == null) {
+                        return;
+                    }
+                    foodModel.clear();
+                    for (Food food : restaurant.getMenu().getFoodItems()) {
+                        foodModel.addElement(food);
+                    }
+                });
     }
 
     // ═══════════════════════════════════════════════════════════════════
@@ -740,13 +851,11 @@ public class FoodOrderingGUI extends JFrame {
             return;
         }
 
-        BasketItem item = new BasketItem(selectedFood, 1);
-        basketItems.add(item);
-        updateBasketDisplay();
+        basketModel.add(new BasketItem(selectedFood, 1));
     }
 
     private void clearBasket() {
-        if (basketItems.isEmpty())
+        if (basketModel.getSize() == 0)
             return;
 
         int confirm = JOptionPane.showConfirmDialog(this,
@@ -755,106 +864,345 @@ public class FoodOrderingGUI extends JFrame {
                 JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            basketItems.clear();
-            updateBasketDisplay();
+            basketModel.clear();
         }
     }
 
-    private void updateBasketDisplay() {
-        basketItemsPanel.removeAll();
-        double total = 0.0;
+    /**
+     * Item count and total; the total is kept by the model, not recomputed.
+     */
+    private void updateBasketSummary() {
+        int size = basketModel.getSize();
+        totalLabel.setText(Money.formatDollars(basketModel.getTotalCents()));
+        itemCountLabel.setText(size + (size == 1 ? " item" : " items"));
+    }
+
+    /**
+     * Basket rows plus a running total. Every change fires an event for just
+     * the rows it touched, so JList repaints those rows and nothing else.
+     */
+    private static class BasketModel extends AbstractListModel<BasketItem> {
+        private final List<BasketItem> items = new ArrayList<>();
+        private long totalCents;
+
+        @Override
+        public int getSize() {
+            return items.size();
+        }
+
+        @Override
+        public BasketItem getElementAt(int index) {
+            return items.get(index);
+        }
+
+        List<BasketItem> getItems() {
+            return java.util.Collections.unmodifiableList(items);
+        }
+
+        long getTotalCents() {
+            return totalCents;
+        }
+
+        void add(BasketItem item) {
+            items.add(item);
+            totalCents += item.getTotalCents();
+            fireIntervalAdded(this, items.size() - 1, items.size() - 1);
+        }
 
-        for (BasketItem item : basketItems) {
-            basketItemsPanel.add(createBasketItemPanel(item));
-            basketItemsPanel.add(Box.createVerticalStrut(8));
-            total += item.getTotalPrice();
+        void addAll(List<BasketItem> added) {
+            if (added.isEmpty()) {
+                return;
+            }
+            int first = items.size();
+            for (BasketItem item : added) {
+                items.add(item);
+                totalCents += item.getTotalCents();
+            }
+            fireIntervalAdded(this, first, items.size() - 1);
+        }
+
+        void remove(int index) {
+            BasketItem removed = items.remove(index);
+            totalCents -= removed.getTotalCents();
+            fireIntervalRemoved(this, index, index);
+        }
+
+        /**
+         * Remove these exact items (by identity), e.g. the ones just ordered.
+         */
+        void removeAll(List<BasketItem> removed) {
+            for (BasketItem item : removed) {
+                for (int i = 0; i < items.size(); i++) {
+                    if (items.get(i) == item) {
+                        remove(i);
+                        break;
+                    }
+                }
+            }
+        }
+
+        void clear() {
+            int size = items.size();
+            if (size == 0) {
+                return;
+            }
+            items.clear();
+            totalCents = 0;
+            fireIntervalRemoved(this, 0, size - 1);
         }
 
-        totalLabel.setText(String.format("$%.2f", total));
-        itemCountLabel.setText(basketItems.size() + (basketItems.size() == 1 ? " item" : " items"));
+        void setQuantity(int index, int quantity) {
+            BasketItem item = items.get(index);
+            totalCents += Money.times(item.getFood().getPriceCents(), quantity - item.getQuantity());
+            item.setQuantity(quantity);
+            fireContentsChanged(this, index, index);
+        }
 
-        basketItemsPanel.revalidate();
-        basketItemsPanel.repaint();
+        /**
+         * Reprice a food. Rows added from the same menu entry share one Food,
+         * so every row holding it is adjusted.
+         */
+        void setPrice(Food food, long priceCents) {
+            long oldCents = food.getPriceCents();
+            if (oldCents == priceCents) {
+                return;
+            }
+            food.setPriceCents(priceCents);
+            for (int i = 0; i < items.size(); i++) {
+                BasketItem item = items.get(i);
+                if (item.getFood() == food) {
+                    totalCents += Money.times(priceCents - oldCents, item.getQuantity());
+                    fireContentsChanged(this, i, i);
+                }
+            }
+        }
     }
 
-    private JPanel createBasketItemPanel(BasketItem item) {
-        JPanel panel = new JPanel(new BorderLayout(5, 5));
-        panel.setOpaque(true);
-        panel.setBackground(getCardColor());
-        panel.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createLineBorder(getBorderColor(), 1, true),
-                BorderFactory.createEmptyBorder(8, 8, 8, 8)));
-        panel.setMaximumSize(new Dimension(Short.MAX_VALUE, 85));
+    // ═══════════════════════════════════════════════════════════════════
+    // CUSTOM RENDERER: Basket Row
+    // ═══════════════════════════════════════════════════════════════════
 
-        JLabel nameLabel = new JLabel(item.getFood().getName());
-        nameLabel.setFont(new Font(getSansSerifFont(), Font.BOLD, 14));
-        nameLabel.setForeground(getTextColor());
+    /**
+     * Rounded "-" / "+" button face, painted by the basket renderer.
+     */
+    private class QuantityGlyph extends JComponent {
+        private final String text;
+        boolean hover;
+
+        QuantityGlyph(String text) {
+            this.text = text;
+            setFont(QUANTITY_BUTTON_FONT);
+            setPreferredSize(new Dimension(25, 25));
+        }
 
-        JLabel priceLabel = new JLabel(String.format("$%.2f", item.getTotalPrice()));
-        priceLabel.setFont(new Font(getSansSerifFont(), Font.BOLD, 13));
-        priceLabel.setForeground(OLIVE_GREEN);
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2d = (Graphics2D) g;
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            Color bg = hover ? APPETIZING_ORANGE : (isNightMode ? NIGHT_CARD_ALT : QUANTITY_BUTTON_BG);
+            g2d.setColor(bg);
+            g2d.fill(new RoundRectangle2D.Float(0, 0, getWidth(), getHeight(), 10, 10));
+            g2d.setColor(hover ? Color.WHITE : getTextColor());
+            g2d.setFont(getFont());
+            FontMetrics fm = g2d.getFontMetrics();
+            int x = (getWidth() - fm.stringWidth(text)) / 2;
+            int y = (getHeight() + fm.getAscent() - fm.getDescent()) / 2;
+            g2d.drawString(text, x, y);
+        }
+    }
 
-        JPanel topRow = new JPanel(new BorderLayout());
-        topRow.setOpaque(false);
-        topRow.add(nameLabel, BorderLayout.CENTER);
-        topRow.add(priceLabel, BorderLayout.EAST);
+    /**
+     * One set of components stamped for every visible basket row. The
+     * controls are painted, not live buttons; BasketMouseHandler hit-tests
+     * clicks against the same layout.
+     */
+    private class BasketCellRenderer implements ListCellRenderer<BasketItem> {
+        final QuantityGlyph minusGlyph = new QuantityGlyph("-");
+        final QuantityGlyph plusGlyph = new QuantityGlyph("+");
+        final JLabel removeLabel = new JLabel("×");
+
+        private final JPanel cell = new JPanel(new BorderLayout());
+        private final JPanel card = new JPanel(new BorderLayout(5, 5));
+        private final JLabel nameLabel = new JLabel();
+        private final JLabel priceLabel = new JLabel();
+        private final JLabel qtyLabel = new JLabel();
+        private javax.swing.border.Border cardBorder;
+        private boolean borderNightMode;
+
+        // Control under the mouse, painted highlighted
+        int hoverIndex = -1;
+        Component hoverControl;
+
+        BasketCellRenderer() {
+            nameLabel.setFont(FOOD_NAME_FONT);
+            priceLabel.setFont(BASKET_PRICE_FONT);
+            priceLabel.setForeground(OLIVE_GREEN);
 
-        JPanel controls = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
-        controls.setOpaque(false);
+            JPanel topRow = new JPanel(new BorderLayout());
+            topRow.setOpaque(false);
+            topRow.add(nameLabel, BorderLayout.CENTER);
+            topRow.add(priceLabel, BorderLayout.EAST);
+
+            qtyLabel.setFont(QUANTITY_FONT);
+            qtyLabel.setBorder(BorderFactory.createEmptyBorder(0, 4, 0, 4));
+            removeLabel.setFont(REMOVE_FONT);
+            removeLabel.setForeground(SPICY_RED);
+            removeLabel.setBorder(BorderFactory.createEmptyBorder(0, 8, 0, 0));
+
+            JPanel controls = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+            controls.setOpaque(false);
+            controls.add(minusGlyph);
+            controls.add(qtyLabel);
+            controls.add(plusGlyph);
+            controls.add(removeLabel);
+
+            card.setOpaque(true);
+            card.add(topRow, BorderLayout.NORTH);
+            card.add(controls, BorderLayout.SOUTH);
+
+            // The gap between rows
+            cell.setOpaque(false);
+            cell.setBorder(BorderFactory.createEmptyBorder(0, 0, 8, 0));
+            cell.add(card, BorderLayout.CENTER);
+        }
 
-        JButton minusBtn = createQuantityButton("-");
-        minusBtn.setPreferredSize(new Dimension(25, 25));
-        minusBtn.setFont(new Font(getSansSerifFont(), Font.BOLD, 12));
-        minusBtn.addActionListener(e -> {
-            int newQty = item.getQuantity() - 1;
-            if (newQty > 0) {
-                item.setQuantity(newQty);
-                updateBasketDisplay();
+        @Override
+        public Component getListCellRendererComponent(JList<? extends BasketItem> list, BasketItem item,
+                int index, boolean isSelected, boolean cellHasFocus) {
+            if (cardBorder == null || borderNightMode != isNightMode) {
+                cardBorder = BorderFactory.createCompoundBorder(
+                        BorderFactory.createLineBorder(getBorderColor(), 1, true),
+                        BorderFactory.createEmptyBorder(8, 8, 8, 8));
+                borderNightMode = isNightMode;
             }
-        });
+            card.setBorder(cardBorder);
+            card.setBackground(getCardColor());
 
-        JLabel qtyDisplay = new JLabel(String.valueOf(item.getQuantity()));
-        qtyDisplay.setFont(new Font(getSansSerifFont(), Font.PLAIN, 13));
-        qtyDisplay.setForeground(getTextColor());
-        qtyDisplay.setBorder(BorderFactory.createEmptyBorder(0, 4, 0, 4));
-
-        JButton plusBtn = createQuantityButton("+");
-        plusBtn.setPreferredSize(new Dimension(25, 25));
-        plusBtn.setFont(new Font(getSansSerifFont(), Font.BOLD, 12));
-        plusBtn.addActionListener(e -> {
-            item.setQuantity(item.getQuantity() + 1);
-            updateBasketDisplay();
-        });
+            nameLabel.setText(item.getFood().getName());
+            nameLabel.setForeground(getTextColor());
+            priceLabel.setText(Money.formatDollars(item.getTotalCents()));
+            qtyLabel.setText(String.valueOf(item.getQuantity()));
+            qtyLabel.setForeground(getTextColor());
+
+            minusGlyph.setVisible(item.getQuantity() > 1);
+            minusGlyph.hover = index == hoverIndex && hoverControl == minusGlyph;
+            plusGlyph.hover = index == hoverIndex && hoverControl == plusGlyph;
+            return cell;
+        }
+    }
 
-        JButton removeBtn = new JButton("×");
-        removeBtn.setFont(new Font(getSansSerifFont(), Font.BOLD, 16));
-        removeBtn.setForeground(SPICY_RED);
-        removeBtn.setBorder(BorderFactory.createEmptyBorder(0, 8, 0, 0));
-        removeBtn.setContentAreaFilled(false);
-        removeBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        removeBtn.addActionListener(e -> {
-            basketItems.remove(item);
-            updateBasketDisplay();
-        });
+    /**
+     * Clicks and hover for the painted basket controls. Only the row under
+     * the mouse is repainted.
+     */
+    private class BasketMouseHandler extends MouseAdapter {
+        @Override
+        public void mouseClicked(MouseEvent e) {
+            int index = rowAt(e.getPoint());
+            Component control = controlAt(index, e.getPoint());
+            if (control == null) {
+                return;
+            }
+            int quantity = basketModel.getElementAt(index).getQuantity();
+            if (control == basketRenderer.minusGlyph && quantity > 1) {
+                basketModel.setQuantity(index, quantity - 1);
+            } else if (control == basketRenderer.plusGlyph) {
+                basketModel.setQuantity(index, quantity + 1);
+            } else if (control == basketRenderer.removeLabel) {
+                basketModel.remove(index);
+            }
+            setHover(-1, null);
+            mouseMoved(e); // The row under the mouse may have changed
+        }
 
-        if (item.getQuantity() > 1) {
-            controls.add(minusBtn);
+        @Override
+        public void mouseMoved(MouseEvent e) {
+            int index = rowAt(e.getPoint());
+            setHover(index, controlAt(index, e.getPoint()));
         }
-        controls.add(qtyDisplay);
-        controls.add(plusBtn);
-        controls.add(removeBtn);
 
-        panel.add(topRow, BorderLayout.NORTH);
-        panel.add(controls, BorderLayout.SOUTH);
+        @Override
+        public void mouseExited(MouseEvent e) {
+            setHover(-1, null);
+        }
 
-        return panel;
+        private void setHover(int index, Component control) {
+            BasketCellRenderer renderer = basketRenderer;
+            if (control == null) {
+                index = -1;
+            }
+            if (index == renderer.hoverIndex && control == renderer.hoverControl) {
+                return;
+            }
+            repaintRow(renderer.hoverIndex);
+            renderer.hoverIndex = index;
+            renderer.hoverControl = control;
+            repaintRow(index);
+            basketList.setCursor(control != null ? HAND_CURSOR : Cursor.getDefaultCursor());
+        }
+
+        private void repaintRow(int index) {
+            if (index >= 0 && index < basketModel.getSize()) {
+                Rectangle bounds = basketList.getCellBounds(index, index);
+                if (bounds != null) {
+                    basketList.repaint(bounds);
+                }
+            }
+        }
+
+        private int rowAt(Point p) {
+            int index = basketList.locationToIndex(p);
+            if (index < 0) {
+                return -1;
+            }
+            Rectangle bounds = basketList.getCellBounds(index, index);
+            return bounds != null && bounds.contains(p) ? index : -1;
+        }
+
+        /**
+         * Lay the renderer out for this row and find the control under the
+         * point, or null if it isn't over one.
+         */
+        private Component controlAt(int index, Point p) {
+            if (index < 0) {
+                return null;
+            }
+            Rectangle bounds = basketList.getCellBounds(index, index);
+            Component row = basketRenderer.getListCellRendererComponent(
+                    basketList, basketModel.getElementAt(index), index, false, false);
+            row.setBounds(0, 0, bounds.width, bounds.height);
+            layoutTree(row);
+
+            Component hit = SwingUtilities.getDeepestComponentAt(row, p.x - bounds.x, p.y - bounds.y);
+            if (hit == basketRenderer.minusGlyph && !basketRenderer.minusGlyph.isVisible()) {
+                return null;
+            }
+            if (hit == basketRenderer.minusGlyph || hit == basketRenderer.plusGlyph
+                    || hit == basketRenderer.removeLabel) {
+                return hit;
+            }
+            return null;
+        }
+
+        private void layoutTree(Component component) {
+            if (component instanceof Container) {
+                Container container = (Container) component;
+                container.doLayout();
+                for (Component child : container.getComponents()) {
+                    layoutTree(child);
+                }
+            }
+        }
     }
 
     // ═══════════════════════════════════════════════════════════════════
     // ORDER OPERATIONS - FIXED to handle boolean return
     // ═══════════════════════════════════════════════════════════════════
     private void placeOrder() {
-        if (basketItems.isEmpty()) {
+        if (orderInProgress) {
+            return;
+        }
+        if (basketModel.getSize() == 0) {
             JOptionPane.showMessageDialog(this,
                     "Your basket is empty! Add some delicious items first.",
                     "Basket Empty",
@@ -862,53 +1210,121 @@ public class FoodOrderingGUI extends JFrame {
             return;
         }
 
-        double total = basketItems.stream().mapToDouble(BasketItem::getTotalPrice).sum();
+        long total = basketModel.getTotalCents();
 
-        if (total > walletBalance) {
+        if (total > walletCents) {
             JOptionPane.showMessageDialog(this,
-                    String.format("Insufficient funds! You need $%.2f but have only $%.2f.", total, walletBalance),
+                    "Insufficient funds! You need " + Money.formatDollars(total) + " but have only "
+                            + Money.formatDollars(walletCents) + ".",
                     "Budget Exceeded",
                     JOptionPane.ERROR_MESSAGE);
             return;
         }
 
         int confirm = JOptionPane.showConfirmDialog(this,
-                String.format("Place order for $%.2f? (Wallet: $%.2f)", total, walletBalance),
+                "Place order for " + Money.formatDollars(total)
+                        + "? (Wallet: " + Money.formatDollars(walletCents) + ")",
                 "Confirm Order",
                 JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
             // Show processing indicator
             setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            orderInProgress = true;
+
+            // Split order by restaurant; the server round trip runs in the background on a
+            // copy, so basket edits made meanwhile don't change what is being ordered. The
+            // foods are copied too: a menu refresh reprices the basket's Food objects in place
+            long orderTotal = total;
+            List<BasketItem> ordered = new ArrayList<>(basketModel.getItems());
+            List<BasketItem> snapshot = new ArrayList<>();
+            for (BasketItem item : ordered) {
+                snapshot.add(new BasketItem(item.getFood().copy(), item.getQuantity()));
+            }
+            data.write(() -> DatabaseManager.placeOrdersSplitByRestaurant(snapshot, orderTotal))
+                    .whenComplete((placement, error) -> {
+                        setCursor(Cursor.getDefaultCursor());
+                        orderInProgress = false;
+                        orderPlaced(ordered, snapshot, error == null ? placement : null);
+                    });
+        }
+    }
 
-            // Split order by restaurant
-            int ordersCreated = DatabaseManager.placeOrdersSplitByRestaurant(basketItems, total);
-
-            setCursor(Cursor.getDefaultCursor());
-
-            if (ordersCreated > 0) {
-                // Deduct from wallet
-                walletBalance -= total;
-                walletLabel.setText(String.format("Wallet: $%.2f", walletBalance));
-
-                String message = ordersCreated == 1
-                        ? String.format("Order placed successfully!\nRemaining balance: $%.2f", walletBalance)
-                        : String.format("%d orders placed (split by restaurant)!\nRemaining balance: $%.2f",
-                                ordersCreated, walletBalance);
+    private void orderPlaced(List<BasketItem> ordered, List<BasketItem> snapshot,
+            DatabaseManager.OrderPlacement placement) {
+        if (placement != null && placement.getPlaced() > 0) {
+            // Deduct the stored and queued orders from the wallet; rejected ones cost nothing
+            walletCents -= placement.getChargedCents();
+            walletLabel.setText("Wallet: " + Money.formatDollars(walletCents));
+
+            int stored = placement.getStored();
+            int queued = placement.getQueued();
+            int rejected = placement.getRejected();
+            String message;
+            if (queued == 0 && rejected == 0) {
+                message = stored == 1
+                        ? "Order placed successfully!"
+                        : stored + " orders placed (split by restaurant)!";
+            } else if (queued == 0) {
+                message = stored + " order(s) placed.";
+            } else {
+                String queuedText = stored > 0 ? stored + " order(s) placed, " + queued + " order(s)"
+                        : queued == 1 ? "Your order was" : queued + " orders were";
+                message = queuedText + " queued for delivery: the restaurant server is unreachable right now.\n"
+                        + "You will be refunded if a queued order is turned down.";
+            }
+            if (rejected > 0) {
+                message += "\n" + rejected + " order(s) could not be placed ("
+                        + String.join("; ", placement.getRejectionReasons()) + ").\n"
+                        + "You were not charged for them; their items are still in your basket.";
+            }
+            message += "\nRemaining balance: " + Money.formatDollars(walletCents);
 
-                JOptionPane.showMessageDialog(this, message, "Order Placed", JOptionPane.INFORMATION_MESSAGE);
+            String title = rejected > 0 ? "Order Partly Placed" : queued == 0 ? "Order Placed" : "Order Queued";
+            JOptionPane.showMessageDialog(this, message, title,
+                    rejected > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
 
-                basketItems.clear();
-                updateBasketDisplay();
-            } else {
-                JOptionPane.showMessageDialog(this,
-                        "Failed to place order. Please try again.",
-                        "Order Failed",
-                        JOptionPane.ERROR_MESSAGE);
+            // Rejected items come back as snapshot copies; keep their basket originals for a retry
+            java.util.Map<BasketItem, BasketItem> originals = new java.util.IdentityHashMap<>();
+            for (int i = 0; i < snapshot.size(); i++) {
+                originals.put(snapshot.get(i), ordered.get(i));
+            }
+            List<BasketItem> placedItems = new ArrayList<>(ordered);
+            for (BasketItem item : placement.getRejectedItems()) {
+                placedItems.remove(originals.get(item));
+            }
+            basketModel.removeAll(placedItems);
+            if (rejected > 0) {
+                refreshMenuOnly(); // Most rejections are stale prices; reprice what is left before a retry
             }
+        } else {
+            // Prices may have changed since the basket was filled; pick them up before a retry
+            refreshMenuOnly();
+            String reasons = placement != null && placement.getRejected() > 0
+                    ? " (" + String.join("; ", placement.getRejectionReasons()) + ")"
+                    : "";
+            JOptionPane.showMessageDialog(this,
+                    "Failed to place order" + reasons + ". Please check your basket and try again.",
+                    "Order Failed",
+                    JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    /**
+     * A queued order the server turned down once it was reachable again:
+     * give the money back and tell the customer.
+     */
+    private void queuedOrderDropped(long totalCents, String reason) {
+        walletCents += totalCents;
+        walletLabel.setText("Wallet: " + Money.formatDollars(walletCents));
+        JOptionPane.showMessageDialog(this,
+                "A queued order was turned down by the restaurant (" + reason + ").\n"
+                        + Money.formatDollars(totalCents) + " has been refunded. Balance: "
+                        + Money.formatDollars(walletCents),
+                "Order Not Delivered",
+                JOptionPane.WARNING_MESSAGE);
+    }
+
     private void showOrderHistory() {
         JDialog historyDialog = new JDialog(this, "Order History", true);
         historyDialog.setSize(600, 400);
@@ -916,18 +1332,8 @@ public class FoodOrderingGUI extends JFrame {
         historyDialog.setLayout(new BorderLayout());
 
         String[] columnNames = { "Order ID", "Date", "Items", "Total" };
-        List<Order> orders = DatabaseManager.getOrderHistory();
-
-        Object[][] data = new Object[orders.size()][4];
-        for (int i = 0; i < orders.size(); i++) {
-            Order order = orders.get(i);
-            data[i][0] = order.getId();
-            data[i][1] = order.getDate();
-            data[i][2] = order.getItemsDescription();
-            data[i][3] = String.format("$%.2f", order.getTotalAmount());
-        }
 
-        javax.swing.table.DefaultTableModel tableModel = new javax.swing.table.DefaultTableModel(data, columnNames) {
+        javax.swing.table.DefaultTableModel tableModel = new javax.swing.table.DefaultTableModel(columnNames, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
                 return false;
@@ -951,6 +1357,43 @@ public class FoodOrderingGUI extends JFrame {
         scrollPane.setBorder(BorderFactory.createEmptyBorder());
         scrollPane.getViewport().setBackground(isNightMode ? NIGHT_BG : LIGHT_BG);
 
+        // Load history page by page: first page now, the next one whenever the
+        // user scrolls near the bottom
+        final String[] nextCursor = { null };
+        final boolean[] hasMore = { true };
+        final boolean[] loading = { false };
+        Runnable loadNextPage = () -> {
+            if (!hasMore[0] || loading[0])
+                return;
+            loading[0] = true;
+            String cursor = nextCursor[0];
+            data.read("history:" + cursor, () -> DatabaseManager.getOrderHistoryPage(cursor, HISTORY_PAGE_SIZE))
+                    .whenComplete((page, error) -> {
+                        loading[0] = false;
+                        if (page == null) {
+                            return;
+                        }
+                        for (Order order : page.getItems()) {
+                            tableModel.addRow(new Object[] {
+                                    order.getId(),
+                                    order.getDate(),
+                                    order.getItemsDescription(),
+                                    Money.formatDollars(order.getTotalCents()) });
+                        }
+                        nextCursor[0] = page.getNextCursor();
+                        hasMore[0] = page.hasMore();
+                    });
+        };
+        loadNextPage.run();
+
+        scrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
+            JScrollBar bar = (JScrollBar) e.getAdjustable();
+            if (!e.getValueIsAdjusting()
+                    && bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - table.getRowHeight() * 5) {
+                loadNextPage.run();
+            }
+        });
+
         historyDialog.add(scrollPane, BorderLayout.CENTER);
 
         JButton closeBtn = new JButton("Close");
@@ -964,11 +1407,13 @@ public class FoodOrderingGUI extends JFrame {
                 return;
             }
             int orderId = (int) tableModel.getValueAt(selectedRow, 0);
-            List<BasketItem> pastItems = DatabaseManager.getOrderItems(orderId);
-            basketItems.addAll(pastItems);
-            updateBasketDisplay();
-            historyDialog.dispose();
-            JOptionPane.showMessageDialog(this, "Items added to basket!");
+            reorderBtn.setEnabled(false);
+            data.read("orderItems:" + orderId, () -> DatabaseManager.getOrderItems(orderId))
+                    .thenAccept(pastItems -> {
+                        basketModel.addAll(pastItems);
+                        historyDialog.dispose();
+                        JOptionPane.showMessageDialog(this, "Items added to basket!");
+                    });
         });
 
         JPanel btnPanel = new JPanel();
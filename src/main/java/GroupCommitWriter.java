@@ -0,0 +1,204 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group commit for the order write path.
+ *
+ * Callers enqueue write tasks; a single writer thread drains the queue and
+ * runs up to maxBatch tasks in one SQLite transaction (one fsync), waiting at
+ * most maxDelay for a batch to fill. Each task runs inside its own savepoint,
+ * so one failing order does not roll back its neighbours. A task's future
+ * completes only after the batch has committed.
+ */
+public class GroupCommitWriter {
+
+    /**
+     * SQL work for one logical write, run on the writer connection inside the
+     * batch transaction. Returns a result such as the generated order id.
+     */
+    public interface WriteTask<T> {
+        T write(Connection conn) throws SQLException;
+    }
+
+    private static class Pending<T> {
+        final WriteTask<T> task;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        boolean failed;
+
+        Pending(WriteTask<T> task) {
+            this.task = task;
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Pending<?>> queue;
+    private final Thread writerThread;
+
+    private final Histogram batchSizes = new Histogram("");
+    private final Histogram commitMicros = new Histogram("us");
+    private final AtomicLong failedTasks = new AtomicLong();
+    private final AtomicLong failedCommits = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public GroupCommitWriter(ConnectionPool pool, int maxBatch, long maxDelayMicros, int queueCapacity) {
+        this.pool = pool;
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.writerThread = new Thread(this::runWriter, "group-commit-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Build a writer from system properties:
+     * foodordering.server.groupCommit.maxBatch,
+     * foodordering.server.groupCommit.maxDelayMicros,
+     * foodordering.server.groupCommit.queue.
+     */
+    public static GroupCommitWriter fromSystemProperties(ConnectionPool pool) {
+        int maxBatch = Integer.getInteger("foodordering.server.groupCommit.maxBatch", 128);
+        long maxDelayMicros = Long.getLong("foodordering.server.groupCommit.maxDelayMicros", 2000L);
+        int queue = Integer.getInteger("foodordering.server.groupCommit.queue", 10000);
+        return new GroupCommitWriter(pool, maxBatch, maxDelayMicros, queue);
+    }
+
+    /**
+     * Queue a write. The future completes with the task's result once its batch
+     * has committed, or exceptionally if the task or the commit failed.
+     */
+    public <T> CompletableFuture<T> submit(WriteTask<T> task) {
+        Pending<T> pending = new Pending<>(task);
+        if (!running || !queue.offer(pending)) {
+            pending.future.completeExceptionally(new SQLException("Write queue is full"));
+        }
+        return pending.future;
+    }
+
+    public void shutdown() {
+        running = false;
+        writerThread.interrupt();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // WRITER THREAD
+    // ═══════════════════════════════════════════════════════════════════
+    private void runWriter() {
+        List<Pending<?>> batch = new ArrayList<>(maxBatch);
+
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - batch.size());
+
+                // Give concurrent submitters a short window to join this batch
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Pending<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+
+                commitBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+
+        // Fail anything still queued so callers don't wait forever
+        Pending<?> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new SQLException("Writer stopped"));
+        }
+    }
+
+    private void commitBatch(List<Pending<?>> batch) {
+        long start = System.nanoTime();
+
+        try (Connection conn = pool.borrowWriter()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Pending<?> pending : batch) {
+                    runInSavepoint(conn, pending);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException | RuntimeException e) {
+            failedCommits.incrementAndGet();
+            System.out.println("SQL Error: group commit of " + batch.size() + " writes failed: " + e.getMessage());
+            for (Pending<?> pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        batchSizes.record(batch.size());
+        commitMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+
+        for (Pending<?> pending : batch) {
+            complete(pending);
+        }
+    }
+
+    private <T> void runInSavepoint(Connection conn, Pending<T> pending) throws SQLException {
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+            pending.result = pending.task.write(conn);
+            conn.releaseSavepoint(savepoint);
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback(savepoint);
+            conn.releaseSavepoint(savepoint);
+            pending.failed = true;
+            failedTasks.incrementAndGet();
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    private static <T> void complete(Pending<T> pending) {
+        if (!pending.failed) {
+            pending.future.complete(pending.result);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // METRICS
+    // ═══════════════════════════════════════════════════════════════════
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    public Histogram getCommitMicros() {
+        return commitMicros;
+    }
+
+    public String getStats() {
+        return String.format("groupCommit[maxBatch=%d, queued=%d, failedWrites=%d, failedCommits=%d] "
+                + "batchSize{%s} commitLatency{%s}",
+                maxBatch, queue.size(), failedTasks.get(), failedCommits.get(), batchSizes, commitMicros);
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram with power-of-two buckets: bucket i holds values in
+ * [2^(i-1), 2^i), bucket 0 holds zero and below. Cheap enough to record on
+ * every commit.
+ */
+public class Histogram {
+    private static final int BUCKETS = 40;
+
+    private final String unit;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public Histogram(String unit) {
+        this.unit = unit;
+    }
+
+    public void record(long value) {
+        int bucket = value <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+        counts.incrementAndGet(bucket);
+        total.incrementAndGet();
+        sum.addAndGet(Math.max(0, value));
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    public double getMean() {
+        long count = total.get();
+        return count == 0 ? 0.0 : (double) sum.get() / count;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Upper bound of the bucket containing the given percentile (0-100).
+     */
+    public long getPercentile(double percentile) {
+        long count = total.get();
+        if (count == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= threshold) {
+                return upperBound(i);
+            }
+        }
+        return max.get();
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket == 0 ? 0 : (1L << bucket) - 1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("n=%d mean=%.1f%s p50<=%d%s p99<=%d%s max=%d%s [",
+                getCount(), getMean(), unit, getPercentile(50), unit, getPercentile(99), unit, getMax(), unit));
+        boolean first = true;
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            if (c == 0) {
+                continue;
+            }
+            if (!first) {
+                sb.append(' ');
+            }
+            first = false;
+            long low = i == 0 ? 0 : 1L << (i - 1);
+            sb.append(low).append('-').append(upperBound(i)).append(':').append(c);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -1,6 +1,4 @@
 import javax.swing.*;
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.List;
 
@@ -18,20 +16,24 @@ public class Main {
         System.out.println("Initializing Database...");
         DatabaseManager.initializeDatabase(port);
 
-        // Check for --clear flag
-        boolean clearDatabase = false;
-        for (String arg : args) {
-            if ("--clear".equals(arg)) {
-                clearDatabase = true;
-                break;
-            }
+        List<String> fullScans = DatabaseManager.checkQueryPlans();
+        for (String fullScan : fullScans) {
+            System.err.println("Warning: query does not use an index: " + fullScan);
+        }
+        // Check only (for CI): fail instead of starting the app when a lookup lost its index
+        if (hasFlag(args, "--check-query-plans")) {
+            System.out.println(fullScans.isEmpty() ? "All indexed queries use an index." : "Query plan check failed.");
+            System.exit(fullScans.isEmpty() ? 0 : 1);
         }
 
+        // Check for --clear flag
+        boolean clearDatabase = hasFlag(args, "--clear");
+
         if (clearDatabase) {
             System.out.println("Clearing existing data...");
             DatabaseManager.clearDatabase();
             System.out.println("Importing data from CSV...");
-            importDataFromCSV("data.csv");
+            importDataFromCSV("data.csv", hasFlag(args, "--parallel-import"));
         }
 
         System.out.println("\n--- Restaurants from Database ---");
@@ -70,54 +72,25 @@ public class Main {
         });
     }
 
-    private static void importDataFromCSV(String csvFile) {
-        String line;
-        String cvsSplitBy = ",";
-
-        java.util.Map<String, Integer> restaurantCache = new java.util.HashMap<>();
-        for (Restaurant r : DatabaseManager.getAllRestaurants()) {
-            restaurantCache.put(r.getName().toLowerCase(), r.getId());
+    private static boolean hasFlag(String[] args, String flag) {
+        for (String arg : args) {
+            if (flag.equals(arg)) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(csvFile))) {
-            br.readLine(); // Skip header
-
-            while ((line = br.readLine()) != null) {
-                String[] data = line.split(cvsSplitBy);
-
-                if (data.length == 4) {
-                    String restaurantName = data[0].trim();
-                    String foodName = data[1].trim();
-                    String foodType = data[2].trim();
-                    String priceStr = data[3].trim();
-
-                    if (restaurantName.isEmpty() || foodName.isEmpty() || foodType.isEmpty() || priceStr.isEmpty()) {
-                        System.err.println("Skipping incomplete line: " + line);
-                        continue;
-                    }
-
-                    try {
-                        double price = Double.parseDouble(priceStr);
-
-                        int restaurantId;
-                        String cacheKey = restaurantName.toLowerCase();
-
-                        if (restaurantCache.containsKey(cacheKey)) {
-                            restaurantId = restaurantCache.get(cacheKey);
-                        } else {
-                            restaurantId = DatabaseManager.addRestaurant(restaurantName);
-                            restaurantCache.put(cacheKey, restaurantId);
-                        }
-
-                        DatabaseManager.addFood(foodName, foodType, price, restaurantId);
-                    } catch (NumberFormatException e) {
-                        System.err.println("Skipping line with invalid price: " + line);
-                    }
-                }
+    private static void importDataFromCSV(String csvFile, boolean parallel) {
+        try {
+            CsvImporter importer = CsvImporter.fromSystemProperties();
+            if (parallel) {
+                importer.importFileParallel(csvFile);
+            } else {
+                importer.importFile(csvFile);
             }
-            System.out.println("Data import completed.");
-        } catch (IOException e) {
-            e.printStackTrace();
+        } catch (IOException | java.sql.SQLException e) {
+            System.err.println("Data import failed: " + e.getMessage());
         }
     }
 }
@@ -0,0 +1,129 @@
+/**
+ * Money as a long number of cents.
+ *
+ * Prices, totals and the wallet are plain longs so arithmetic is exact and
+ * allocation-free; this class only parses and formats them. Amounts are
+ * written as plain decimals ("12.50") in the database import, on the wire and
+ * in text fields.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    /**
+     * Parse a decimal amount such as "12.5", "-3" or "0.99" exactly. More than
+     * two fraction digits are accepted only if the extra digits are zero.
+     *
+     * @throws NumberFormatException if the text is not a plain decimal amount
+     */
+    public static long parse(String text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Parse the amount in text[start, end) without copying it out, e.g. a
+     * field of a protocol line.
+     */
+    public static long parse(CharSequence text, int start, int end) {
+        int i = start;
+        while (i < end && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        while (end > i && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long units = 0;
+        int unitDigits = 0;
+        for (; i < end && text.charAt(i) != '.'; i++) {
+            units = Math.addExact(Math.multiplyExact(units, 10), digit(text, i, start, end));
+            unitDigits++;
+        }
+
+        long cents = 0;
+        int fractionDigits = 0;
+        if (i < end) {
+            for (i++; i < end; i++, fractionDigits++) {
+                int d = digit(text, i, start, end);
+                if (fractionDigits < 2) {
+                    cents = cents * 10 + d;
+                } else if (d != 0) {
+                    throw new NumberFormatException("More than two decimal places: " + text.subSequence(start, end));
+                }
+            }
+        }
+        if (unitDigits == 0 && fractionDigits == 0) {
+            throw new NumberFormatException("Not an amount: " + text.subSequence(start, end));
+        }
+        if (fractionDigits == 1) {
+            cents *= 10;
+        }
+
+        long value = Math.addExact(Math.multiplyExact(units, 100), cents);
+        return negative ? -value : value;
+    }
+
+    private static int digit(CharSequence text, int i, int start, int end) {
+        char c = text.charAt(i);
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Not an amount: " + text.subSequence(start, end));
+        }
+        return c - '0';
+    }
+
+    /**
+     * Cents from a legacy REAL amount, rounded to the nearest cent.
+     */
+    public static long fromDouble(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Price times quantity, failing loudly instead of overflowing.
+     */
+    public static long times(long cents, int quantity) {
+        return Math.multiplyExact(cents, quantity);
+    }
+
+    /**
+     * Plain decimal with two fraction digits: 1250 -> "12.50".
+     */
+    public static String format(long cents) {
+        StringBuilder sb = new StringBuilder(12);
+        appendTo(sb, cents);
+        return sb.toString();
+    }
+
+    /**
+     * Amount with a dollar sign for display: 1250 -> "$12.50".
+     */
+    public static String formatDollars(long cents) {
+        StringBuilder sb = new StringBuilder(13);
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        sb.append('$');
+        appendTo(sb, cents);
+        return sb.toString();
+    }
+
+    private static void appendTo(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+        }
+        long abs = Math.abs(cents);
+        long fraction = abs % 100;
+        sb.append(abs / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+}
@@ -0,0 +1,489 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking front end for OrderServer.
+ *
+ * A single selector thread accepts connections and frames the text protocol
+ * (ORDER ... END_ORDER, STATS, legacy lines) out of ByteBuffers, so idle or
+ * slow clients cost a little buffer memory instead of a thread. Completed
+ * orders are handed to the worker stage (ClientExecutor) for persistence; the
+ * worker queues the response and wakes the selector to write it.
+ *
+ * Connections are persistent and may pipeline orders. Pipelined orders are
+ * persisted concurrently, so responses can come back out of order; clients
+ * match them by CORRELATION_ID.
+ *
+ * A connection whose first byte is BinaryProtocol.MAGIC is framed as binary
+ * instead; its ORDER frames are handled the same way. An ORDER_BATCH (text
+ * or frame) is gathered here too and stored by one worker task.
+ *
+ * A connection that sends SUBSCRIBE also receives EVENT lines, queued into
+ * its outbox by whichever thread publishes them. Subscribers cost no thread
+ * here, so this transport is the better fit for many open GUIs.
+ */
+public class NioOrderTransport {
+
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    // Stop reading from a connection while this many of its orders are unanswered
+    private static final int MAX_IN_FLIGHT_PER_CONNECTION = 64;
+    // Order buffers a connection keeps for reuse between orders
+    private static final int MAX_IDLE_ORDER_BUFFERS = 4;
+    // Drop a subscriber whose outbox has grown this long (it has stopped reading)
+    private static final int MAX_QUEUED_PER_SUBSCRIBER = Integer.getInteger("foodordering.server.events.queue", 256);
+
+    private final int port;
+    private final ClientExecutor workers;
+    private final Selector selector;
+
+    // Connections with responses waiting to be flushed, filled by worker threads
+    private final Queue<ClientState> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+    public NioOrderTransport(int port, ClientExecutor workers) throws IOException {
+        this.port = port;
+        this.workers = workers;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Per-connection framing state. Only the selector thread touches the
+     * framing fields; the outbox is shared with workers.
+     */
+    private static class ClientState {
+        final SocketChannel channel;
+        final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+        final Queue<ByteBuffer> outbox = new ConcurrentLinkedQueue<>();
+        final AtomicInteger inFlight = new AtomicInteger(); // orders handed to workers, not yet answered
+        final AtomicInteger queued = new AtomicInteger(); // buffers in the outbox
+
+        EventBroadcaster.Subscriber subscriber; // non-null after SUBSCRIBE
+        volatile boolean dropped; // subscriber fell behind: close without flushing
+
+        ByteBuffer frames; // non-null on a binary connection: bytes not yet framed
+        final OrderBuffer.Pool orderBuffers = OrderServer.newOrderBufferPool(MAX_IDLE_ORDER_BUFFERS);
+        OrderBuffer order; // non-null while between ORDER and END_ORDER
+        OrderBuffer.Batch batch; // non-null while between ORDER_BATCH and END_BATCH
+        boolean legacy; // first line was not a known command: log until EOF
+        boolean firstLine = true;
+        volatile boolean closeWhenFlushed; // close once the outbox is empty and nothing is in flight
+
+        ClientState(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // SELECTOR LOOP
+    // ═══════════════════════════════════════════════════════════════════
+    public void run() throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+
+            while (true) {
+                selector.select();
+                registerPendingWrites();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept(server);
+                            continue;
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(key);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(key);
+                        }
+                    } catch (IOException e) {
+                        System.out.println("❌ Error handling client: " + e.getMessage());
+                        close(key);
+                    }
+                }
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel server) {
+        SocketChannel channel = null;
+        try {
+            channel = server.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new ClientState(channel));
+            System.out.println("\n📨 Client connected: " + channel.socket().getInetAddress());
+        } catch (IOException e) {
+            System.out.println("❌ Error accepting client: " + e.getMessage());
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ex) {
+                    System.out.println(ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        ClientState state = (ClientState) key.attachment();
+
+        readBuffer.clear();
+        int n = state.channel.read(readBuffer);
+        if (n < 0) {
+            onEndOfStream(key, state);
+            return;
+        }
+        readBuffer.flip();
+
+        if (state.firstLine && state.frames == null && state.partialLine.size() == 0
+                && readBuffer.hasRemaining() && (readBuffer.get(0) & 0xFF) == BinaryProtocol.MAGIC) {
+            state.frames = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            System.out.println("🔢 Binary protocol: " + state.channel.socket().getInetAddress());
+        }
+        if (state.frames != null) {
+            readFrames(key, state);
+            return;
+        }
+
+        while (readBuffer.hasRemaining()) {
+            byte b = readBuffer.get();
+            if (b == '\n') {
+                String line = state.partialLine.toString(StandardCharsets.UTF_8);
+                state.partialLine.reset();
+                if (line.endsWith("\r")) {
+                    line = line.substring(0, line.length() - 1);
+                }
+                onLine(key, state, line);
+            } else {
+                state.partialLine.write(b);
+                if (state.partialLine.size() > MAX_LINE_LENGTH) {
+                    respond(state, "ERROR:Line too long", true);
+                    key.interestOps(0);
+                    return;
+                }
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // PROTOCOL FRAMING
+    // ═══════════════════════════════════════════════════════════════════
+    private void onLine(SelectionKey key, ClientState state, String line) {
+        if (state.legacy) {
+            System.out.println(line);
+            return;
+        }
+
+        if (state.batch != null) {
+            onBatchLine(key, state, line);
+            return;
+        }
+
+        if (state.order != null) {
+            if ("END_ORDER".equals(line)) {
+                OrderBuffer order = state.order;
+                state.order = null;
+                dispatchOrder(key, state, order);
+            } else {
+                state.order.parseLine(line);
+            }
+            return;
+        }
+
+        if ("ORDER".equals(line)) {
+            state.order = state.orderBuffers.borrow();
+        } else if ("ORDER_BATCH".equals(line)) {
+            // A fresh Batch each time: the previous one may still be on a worker
+            state.batch = OrderServer.newOrderBatch();
+        } else if ("STATS".equals(line)) {
+            respond(state, OrderServer.getStats(), false);
+        } else if ("REFRESH_PRICES".equals(line)) {
+            respond(state, OrderServer.refreshPrices(), false);
+        } else if (line.startsWith("NOTIFY:")) {
+            respond(state, OrderServer.handleNotify(line), false);
+        } else if ("SUBSCRIBE".equals(line)) {
+            subscribe(state);
+        } else if (line.isEmpty()) {
+            return;
+        } else if (state.firstLine) {
+            // Legacy format - just print and acknowledge at end of stream
+            state.legacy = true;
+            System.out.println("📦 Received (legacy): " + line);
+        } else {
+            respond(state, "ERROR:Unknown command", false);
+        }
+        state.firstLine = false;
+    }
+
+    /**
+     * A line between ORDER_BATCH and END_BATCH. The batch's orders live in
+     * the batch itself rather than the connection's pool.
+     */
+    private void onBatchLine(SelectionKey key, ClientState state, String line) {
+        if (state.order != null) {
+            if ("END_ORDER".equals(line)) {
+                state.order = null;
+            } else {
+                state.order.parseLine(line);
+            }
+        } else if ("ORDER".equals(line)) {
+            state.order = state.batch.next();
+        } else if ("END_BATCH".equals(line)) {
+            OrderBuffer.Batch batch = state.batch;
+            state.batch = null;
+            state.firstLine = false;
+            dispatch(key, state, null, () -> encode(OrderServer.handleBatch(batch)),
+                    () -> encode("ERROR:Server busy"));
+        }
+    }
+
+    /**
+     * Append what was just read and handle every complete frame.
+     */
+    private void readFrames(SelectionKey key, ClientState state) {
+        if (state.frames.remaining() < readBuffer.remaining()) {
+            // Grow; a frame never needs more than its header plus the maximum payload
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(state.frames.capacity() * 2,
+                    state.frames.position() + readBuffer.remaining()));
+            state.frames.flip();
+            larger.put(state.frames);
+            state.frames = larger;
+        }
+        state.frames.put(readBuffer);
+
+        ByteBuffer frames = state.frames;
+        frames.flip();
+        try {
+            int length;
+            while ((length = BinaryProtocol.payloadLength(frames)) >= 0
+                    && frames.remaining() >= BinaryProtocol.HEADER_LENGTH + length) {
+                int start = frames.position();
+                byte type = frames.get(start + 1);
+                ByteBuffer payload = frames.slice(start + BinaryProtocol.HEADER_LENGTH, length);
+                frames.position(start + BinaryProtocol.HEADER_LENGTH + length);
+                onFrame(key, state, type, payload);
+            }
+        } catch (ProtocolException e) {
+            respond(state, BinaryProtocol.reply("ERROR:" + e.getMessage()), true);
+            key.interestOps(0);
+        }
+        frames.compact();
+    }
+
+    private void onFrame(SelectionKey key, ClientState state, byte type, ByteBuffer payload) {
+        if (type == BinaryProtocol.ORDER_BATCH) {
+            OrderBuffer.Batch batch = OrderServer.newOrderBatch();
+            batch.decode(payload);
+            dispatch(key, state, null, () -> OrderServer.handleBinaryBatch(batch),
+                    () -> BinaryProtocol.reply("ERROR:Server busy"));
+            return;
+        }
+        if (type != BinaryProtocol.ORDER) {
+            respond(state, OrderServer.handleFrame(type, payload), false);
+            return;
+        }
+        // Decoded here, so the frame bytes can be reused as soon as this returns
+        OrderBuffer order = state.orderBuffers.borrow();
+        order.decode(payload);
+        dispatch(key, state, order, () -> OrderServer.handleBinaryOrder(order),
+                () -> BinaryProtocol.result(order.binaryCorrelationId, "ERROR", -1, "Server busy"));
+    }
+
+    private void onEndOfStream(SelectionKey key, ClientState state) throws IOException {
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+
+        if (state.legacy) {
+            respond(state, "OK", true);
+        } else if (state.batch != null) {
+            // Client closed mid-batch: unlike a single order, nothing of it is stored
+            System.out.println("❌ Batch cut off before END_BATCH, nothing stored");
+            state.batch = null;
+            state.order = null;
+            if (state.outbox.isEmpty() && state.inFlight.get() == 0) {
+                close(key);
+            } else {
+                state.closeWhenFlushed = true;
+            }
+        } else if (state.order != null) {
+            // Client closed mid-order: store what we have, like the blocking reader does
+            OrderBuffer order = state.order;
+            state.order = null;
+            dispatchOrder(key, state, order);
+            state.closeWhenFlushed = true;
+        } else if (state.outbox.isEmpty() && state.inFlight.get() == 0) {
+            close(key);
+        } else {
+            // Half-closed: finish answering pipelined orders, then close
+            state.closeWhenFlushed = true;
+        }
+    }
+
+    private void dispatchOrder(SelectionKey key, ClientState state, OrderBuffer order) {
+        // Busy replies jump ahead of replies still in flight, so they must carry the order's id
+        dispatch(key, state, order, () -> encode(OrderServer.handleOrder(order)),
+                () -> encode(OrderServer.response("ERROR", order.correlationId, "Server busy")));
+    }
+
+    /**
+     * Store an order (or a batch) on the worker stage and queue its response,
+     * or answer busyResponse if the workers are saturated. The order's
+     * buffer, if it came from the connection's pool, goes back to it once the
+     * response is built.
+     */
+    private void dispatch(SelectionKey key, ClientState state, OrderBuffer order, Supplier<ByteBuffer> work,
+            Supplier<ByteBuffer> busyResponse) {
+        if (state.inFlight.incrementAndGet() >= MAX_IN_FLIGHT_PER_CONNECTION) {
+            // Back-pressure: pause reading until some responses go out
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+
+        boolean accepted = workers.submit(() -> {
+            ByteBuffer response = work.get();
+            if (order != null) {
+                state.orderBuffers.release(order);
+            }
+            enqueue(state, response);
+            state.inFlight.decrementAndGet();
+            pendingWrites.add(state);
+            selector.wakeup();
+        });
+        if (!accepted) {
+            state.inFlight.decrementAndGet();
+            respond(state, busyResponse.get(), false);
+            if (order != null) {
+                state.orderBuffers.release(order);
+            }
+        }
+    }
+
+    private void subscribe(ClientState state) {
+        if (state.subscriber != null) {
+            respond(state, "OK:Subscribed", false);
+            return;
+        }
+        state.subscriber = new EventBroadcaster.Subscriber() {
+            @Override
+            public boolean offer(String event) {
+                if (state.dropped || state.queued.get() >= MAX_QUEUED_PER_SUBSCRIBER) {
+                    return false;
+                }
+                respond(state, event, false);
+                return true;
+            }
+
+            @Override
+            public void close() {
+                state.dropped = true;
+                pendingWrites.add(state);
+                selector.wakeup();
+            }
+        };
+        respond(state, "OK:Subscribed", false);
+        OrderServer.getEvents().subscribe(state.subscriber);
+        System.out.println("🔔 Client subscribed to events: " + state.channel.socket().getInetAddress());
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // WRITES - may be queued from worker threads
+    // ═══════════════════════════════════════════════════════════════════
+    private void respond(ClientState state, String line, boolean closeAfter) {
+        respond(state, encode(line), closeAfter);
+    }
+
+    private void respond(ClientState state, ByteBuffer response, boolean closeAfter) {
+        enqueue(state, response);
+        if (closeAfter) {
+            state.closeWhenFlushed = true;
+        }
+        pendingWrites.add(state);
+        selector.wakeup();
+    }
+
+    private static void enqueue(ClientState state, ByteBuffer response) {
+        state.queued.incrementAndGet();
+        state.outbox.add(response);
+    }
+
+    private static ByteBuffer encode(String line) {
+        return ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void registerPendingWrites() {
+        ClientState state;
+        while ((state = pendingWrites.poll()) != null) {
+            SelectionKey key = state.channel.keyFor(selector);
+            if (key == null || !key.isValid()) {
+                continue;
+            }
+            if (state.dropped) {
+                close(key);
+                continue;
+            }
+            int ops = key.interestOps() | SelectionKey.OP_WRITE;
+            if (!state.closeWhenFlushed && state.inFlight.get() < MAX_IN_FLIGHT_PER_CONNECTION) {
+                ops |= SelectionKey.OP_READ;
+            }
+            key.interestOps(ops);
+        }
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        ClientState state = (ClientState) key.attachment();
+
+        ByteBuffer buffer;
+        while ((buffer = state.outbox.peek()) != null) {
+            state.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                return; // socket buffer full, wait for the next OP_WRITE
+            }
+            state.outbox.poll();
+            state.queued.decrementAndGet();
+        }
+
+        if (state.closeWhenFlushed && state.inFlight.get() == 0) {
+            close(key);
+        } else {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void close(SelectionKey key) {
+        ClientState state = (ClientState) key.attachment();
+        if (state != null && state.subscriber != null) {
+            OrderServer.getEvents().unsubscribe(state.subscriber);
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
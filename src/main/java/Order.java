@@ -1,13 +1,13 @@
 public class Order {
     private int id;
     private String date;
-    private double totalAmount;
+    private long totalCents;
     private String itemsDescription; // Simplified for history view (e.g., "Burger x2, Coke x1")
 
-    public Order(int id, String date, double totalAmount, String itemsDescription) {
+    public Order(int id, String date, long totalCents, String itemsDescription) {
         this.id = id;
         this.date = date;
-        this.totalAmount = totalAmount;
+        this.totalCents = totalCents;
         this.itemsDescription = itemsDescription;
     }
 
@@ -19,8 +19,8 @@ public class Order {
         return date;
     }
 
-    public double getTotalAmount() {
-        return totalAmount;
+    public long getTotalCents() {
+        return totalCents;
     }
 
     public String getItemsDescription() {
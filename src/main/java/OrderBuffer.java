@@ -0,0 +1,294 @@
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One order being parsed and stored by the server, held in primitive arrays
+ * that are reused from order to order.
+ *
+ * Both protocols decode straight into it: text lines are parsed in place by
+ * index instead of being split into substrings, binary frames are read field
+ * by field. Item names are only materialised when the server cannot take them
+ * from the price index, which replaces them with its own (shared) Strings
+ * when the order is priced. Not thread-safe; a buffer belongs to one order at
+ * a time, handed between threads through a Pool.
+ */
+public final class OrderBuffer {
+
+    private static final int INITIAL_ITEMS = 16;
+    // A buffer that grew past this for one huge order is shrunk again on reset
+    private static final int RETAINED_ITEMS = 1024;
+    private static final int MAX_ORDER_KEY_LENGTH = 128;
+
+    private final boolean needNames;
+
+    String correlationId; // text protocol, echoed verbatim; null if untagged
+    int binaryCorrelationId; // binary protocol
+    String orderKey; // client's idempotency key; null if the order is not tracked
+    boolean duplicate; // set when stored: the key was already in the database
+    int restaurantId = -1;
+    long totalCents;
+    String error; // first parse error; the order is answered ERROR once complete
+
+    int itemCount;
+    int[] foodIds = new int[INITIAL_ITEMS]; // 0 when sent by a client that predates food ids
+    int[] quantities = new int[INITIAL_ITEMS];
+    long[] priceCents = new long[INITIAL_ITEMS];
+    String[] names = new String[INITIAL_ITEMS]; // null for items sent by id, until priced
+
+    /**
+     * @param needNames true when there is no price index to supply item
+     *                  names, so they must be decoded from the request
+     */
+    public OrderBuffer(boolean needNames) {
+        this.needNames = needNames;
+    }
+
+    public void reset() {
+        correlationId = null;
+        binaryCorrelationId = 0;
+        orderKey = null;
+        duplicate = false;
+        restaurantId = -1;
+        totalCents = 0;
+        error = null;
+        if (foodIds.length > RETAINED_ITEMS) {
+            foodIds = new int[INITIAL_ITEMS];
+            quantities = new int[INITIAL_ITEMS];
+            priceCents = new long[INITIAL_ITEMS];
+            names = new String[INITIAL_ITEMS];
+        } else {
+            Arrays.fill(names, 0, itemCount, null); // Don't pin old Strings
+        }
+        itemCount = 0;
+    }
+
+    private void addItem(int foodId, int quantity, long cents, String name) {
+        if (itemCount == foodIds.length) {
+            int capacity = itemCount * 2;
+            foodIds = Arrays.copyOf(foodIds, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            priceCents = Arrays.copyOf(priceCents, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        foodIds[itemCount] = foodId;
+        quantities[itemCount] = quantity;
+        priceCents[itemCount] = cents;
+        names[itemCount] = name;
+        itemCount++;
+    }
+
+    private void setOrderKey(String key) {
+        if (key.length() > MAX_ORDER_KEY_LENGTH) {
+            error = "Order key is longer than " + MAX_ORDER_KEY_LENGTH + " characters";
+        }
+        orderKey = key.isEmpty() ? null : key;
+    }
+
+    String label(int i) {
+        return names[i] != null ? names[i] : "food #" + foodIds[i];
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // TEXT PROTOCOL
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Parse one line between ORDER and END_ORDER (format in
+     * OrderServer.handleOrder). Unknown lines are ignored, as before; after a
+     * malformed line the rest of the order is skipped.
+     */
+    public void parseLine(String line) {
+        if (error != null) {
+            return;
+        }
+        try {
+            if (line.startsWith("CORRELATION_ID:")) {
+                correlationId = line.substring(15);
+            } else if (line.startsWith("ORDER_KEY:")) {
+                setOrderKey(line.substring(10));
+            } else if (line.startsWith("RESTAURANT_ID:")) {
+                restaurantId = Integer.parseInt(line, 14, line.length(), 10);
+            } else if (line.startsWith("TOTAL:")) {
+                totalCents = Money.parse(line, 6, line.length());
+            } else if (line.startsWith("ITEM:")) {
+                parseItem(line);
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            error = e.getMessage();
+        }
+    }
+
+    /**
+     * ITEM:name|quantity|price|foodId, foodId being optional. Lines with a
+     * different number of fields are ignored.
+     */
+    private void parseItem(String line) {
+        int nameEnd = line.indexOf('|', 5);
+        int quantityEnd = nameEnd < 0 ? -1 : line.indexOf('|', nameEnd + 1);
+        if (quantityEnd < 0) {
+            return;
+        }
+        int priceEnd = line.indexOf('|', quantityEnd + 1);
+        if (priceEnd >= 0 && line.indexOf('|', priceEnd + 1) >= 0) {
+            return;
+        }
+
+        int quantity = Integer.parseInt(line, nameEnd + 1, quantityEnd, 10);
+        long cents = Money.parse(line, quantityEnd + 1, priceEnd < 0 ? line.length() : priceEnd);
+        boolean hasFoodId = priceEnd >= 0 && priceEnd < line.length() - 1; // "name|1|2.50|" has no id either
+        int foodId = hasFoodId ? Integer.parseInt(line, priceEnd + 1, line.length(), 10) : 0;
+        addItem(foodId, quantity, cents, needNames || foodId <= 0 ? line.substring(5, nameEnd) : null);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // BINARY PROTOCOL
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Decode an ORDER frame payload (layout in BinaryProtocol).
+     */
+    public void decode(ByteBuffer payload) {
+        try {
+            binaryCorrelationId = payload.getInt();
+            restaurantId = payload.getInt();
+            totalCents = payload.getLong();
+            int count = Short.toUnsignedInt(payload.getShort());
+            for (int i = 0; i < count; i++) {
+                int foodId = payload.getInt();
+                int quantity = payload.getInt();
+                long cents = payload.getLong();
+                String name = null;
+                if (needNames || foodId <= 0) {
+                    name = BinaryProtocol.getString(payload);
+                } else {
+                    BinaryProtocol.skipString(payload);
+                }
+                addItem(foodId, quantity, cents, name);
+            }
+            if (payload.hasRemaining()) {
+                setOrderKey(BinaryProtocol.getString(payload));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            error = "Malformed order frame";
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // BATCHES
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * The orders of one ORDER_BATCH, each in its own buffer. Buffers are kept
+     * across reset() so a connection can reuse one Batch for all its batches.
+     */
+    public static final class Batch {
+        private final boolean needNames;
+        private final int maxOrders;
+        private final List<OrderBuffer> orders = new ArrayList<>();
+        private OrderBuffer overflow; // Absorbs orders past maxOrders so the request can still be read to its end
+        private int size;
+        String error; // batch-level error: no order in it is stored
+
+        public Batch(boolean needNames, int maxOrders) {
+            this.needNames = needNames;
+            this.maxOrders = maxOrders;
+        }
+
+        public void reset() {
+            size = 0;
+            error = null;
+        }
+
+        /**
+         * A cleared buffer for the batch's next order.
+         */
+        public OrderBuffer next() {
+            if (size == maxOrders) {
+                error = "Batch has more than " + maxOrders + " orders";
+                if (overflow == null) {
+                    overflow = new OrderBuffer(needNames);
+                }
+                overflow.reset();
+                return overflow;
+            }
+            if (size == orders.size()) {
+                orders.add(new OrderBuffer(needNames));
+            }
+            OrderBuffer order = orders.get(size++);
+            order.reset();
+            return order;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public OrderBuffer get(int index) {
+            return orders.get(index);
+        }
+
+        /**
+         * Decode an ORDER_BATCH frame payload (layout in BinaryProtocol).
+         */
+        public void decode(ByteBuffer payload) {
+            try {
+                int count = Short.toUnsignedInt(payload.getShort());
+                for (int i = 0; i < count; i++) {
+                    int length = payload.getInt();
+                    if (length < 0 || length > payload.remaining()) {
+                        error = "Malformed batch frame";
+                        return;
+                    }
+                    next().decode(payload.slice(payload.position(), length));
+                    payload.position(payload.position() + length);
+                }
+            } catch (BufferUnderflowException e) {
+                error = "Malformed batch frame";
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // POOL
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Free buffers for one connection. A connection borrows a buffer per
+     * order it is reading; whichever thread finishes the order releases it.
+     * At most maxIdle buffers are kept between orders.
+     */
+    public static final class Pool {
+        private final boolean needNames;
+        private final int maxIdle;
+        private final ConcurrentLinkedQueue<OrderBuffer> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        public Pool(boolean needNames, int maxIdle) {
+            this.needNames = needNames;
+            this.maxIdle = maxIdle;
+        }
+
+        public OrderBuffer borrow() {
+            OrderBuffer buffer = idle.poll();
+            if (buffer == null) {
+                return new OrderBuffer(needNames);
+            }
+            idleCount.decrementAndGet();
+            buffer.reset();
+            return buffer;
+        }
+
+        public void release(OrderBuffer buffer) {
+            if (idleCount.incrementAndGet() <= maxIdle) {
+                idle.offer(buffer);
+            } else {
+                idleCount.decrementAndGet();
+            }
+        }
+    }
+}
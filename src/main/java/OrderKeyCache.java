@@ -0,0 +1,57 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recently stored order keys and the order ids they were stored under.
+ *
+ * Lets OrderServer answer a resent order (a client retry after a timeout, an
+ * outbox replay) without pricing it or touching the database. Bounded, least
+ * recently used first out; a key that has been evicted is still caught by
+ * the unique index on orders.order_key.
+ */
+public class OrderKeyCache {
+
+    private final int maxKeys;
+    private final LinkedHashMap<String, Integer> orderIds;
+
+    private long hits;
+    private long misses;
+
+    public OrderKeyCache(int maxKeys) {
+        this.maxKeys = maxKeys;
+        this.orderIds = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > OrderKeyCache.this.maxKeys;
+            }
+        };
+    }
+
+    /**
+     * Build a cache from the system property foodordering.server.dedup.maxKeys.
+     */
+    public static OrderKeyCache fromSystemProperties() {
+        return new OrderKeyCache(Integer.getInteger("foodordering.server.dedup.maxKeys", 100000));
+    }
+
+    /**
+     * Id of the order stored under this key, or -1 if it is not cached.
+     */
+    public synchronized int get(String orderKey) {
+        Integer orderId = orderIds.get(orderKey);
+        if (orderId == null) {
+            misses++;
+            return -1;
+        }
+        hits++;
+        return orderId;
+    }
+
+    public synchronized void put(String orderKey, int orderId) {
+        orderIds.put(orderKey, orderId);
+    }
+
+    public synchronized String getStats() {
+        return "dedup[keys=" + orderIds.size() + "/" + maxKeys + "] hits=" + hits + " misses=" + misses;
+    }
+}
@@ -0,0 +1,415 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Durable queue of orders the server has not stored yet.
+ *
+ * Checkout appends an order record (synced to disk) when the server cannot
+ * take the order right away; a background forwarder replays queued orders to
+ * the server as ORDER_BATCHes once it is reachable and appends an ACK record
+ * for each one the server has answered for good. Every order carries its
+ * order key, so one that reached the server before a timeout is not stored a
+ * second time when it is replayed.
+ *
+ * The file is append-only: ORDER and ACK records, each framed as
+ * type u8 | length u32 | crc32 u32 | body. On open it is read back, a torn
+ * record at the end (a crash mid-append) is dropped, and the file is
+ * compacted down to the unacknowledged orders; it is compacted again whenever
+ * acknowledged records outweigh pending ones.
+ *
+ * Only the server errors in TRANSIENT_ERRORS keep an order queued; any other
+ * answer settles it. A batch refused as a whole with a lasting error (most
+ * often a server limit below batchSize) is resent in halves until the
+ * refusal comes back for a single order, which then counts as failed.
+ */
+public class OrderOutbox {
+
+    private static final byte ORDER_RECORD = 'O';
+    private static final byte ACK_RECORD = 'A';
+    // Don't rewrite the file for a handful of acknowledged records
+    private static final int MIN_ACKS_TO_COMPACT = 256;
+    // Server errors that can heal by themselves; an order answered with any other error is not resent
+    private static final Set<String> TRANSIENT_ERRORS = new HashSet<>(Arrays.asList(
+            "Server busy", "Prices unavailable", "Failed to store order", "Failed to store batch",
+            "No result from server"));
+
+    private final File file;
+    private final OrderServerClient client;
+    private final CircuitBreaker breaker;
+    private int batchSize; // halved whenever the server refuses a batch this large
+    private final long retryMillis;
+
+    // Unacknowledged orders by order key, oldest first
+    private final Map<String, OrderServerClient.OrderRequest> pending = new LinkedHashMap<>();
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+    private int acksSinceCompaction;
+    private long forwarded;
+    private long rejected;
+    private long failed;
+
+    private volatile Listener listener;
+    private volatile boolean running;
+    private Thread forwarder;
+
+    /**
+     * Told about queued orders the server answered for good without storing
+     * them (rejected or failed), so whoever paid for them can be refunded.
+     * Called on the forwarder thread.
+     */
+    public interface Listener {
+        void onOrderDropped(int restaurantId, long totalCents, String reason);
+    }
+
+    /**
+     * @param client used only by the forwarder, so replays never hold up a
+     *               checkout on the shared connection
+     */
+    public OrderOutbox(File file, OrderServerClient client, CircuitBreaker breaker, int batchSize,
+            long retryMillis) {
+        this.file = file;
+        this.client = client;
+        this.breaker = breaker;
+        this.batchSize = batchSize;
+        this.retryMillis = retryMillis;
+    }
+
+    /**
+     * Build an outbox from system properties:
+     * foodordering.client.outbox.batchSize,
+     * foodordering.client.outbox.retryMs.
+     */
+    public static OrderOutbox fromSystemProperties(File file, OrderServerClient client, CircuitBreaker breaker) {
+        return new OrderOutbox(file, client, breaker,
+                Integer.getInteger("foodordering.client.outbox.batchSize", 100),
+                Long.getLong("foodordering.client.outbox.retryMs", 2000L));
+    }
+
+    /**
+     * Load orders left over from an earlier run and start forwarding them.
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        load();
+        compact();
+        if (!pending.isEmpty()) {
+            System.out.println("📮 " + pending.size() + " queued orders waiting for the server");
+        }
+
+        running = true;
+        forwarder = new Thread(this::runForwarder, "order-outbox");
+        forwarder.setDaemon(true);
+        forwarder.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (forwarder != null) {
+            forwarder.interrupt();
+            forwarder = null;
+        }
+        closeFile();
+    }
+
+    /**
+     * Queue orders for the forwarder. Returns once they are on disk; each
+     * request must carry an order key.
+     */
+    public synchronized void add(List<OrderServerClient.OrderRequest> requests) throws IOException {
+        if (out == null) {
+            throw new IOException("Outbox is not open");
+        }
+        for (OrderServerClient.OrderRequest request : requests) {
+            writeRecord(out, ORDER_RECORD, orderBody(request));
+        }
+        out.flush();
+        fileOut.getFD().sync();
+
+        for (OrderServerClient.OrderRequest request : requests) {
+            pending.put(request.orderKey, request);
+        }
+        notifyAll(); // Wake the forwarder: the server may be back already
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    public synchronized String getStats() {
+        return "outbox[pending=" + pending.size() + ", batchSize=" + batchSize + "] forwarded=" + forwarded
+                + " rejected=" + rejected + " failed=" + failed + " " + breaker.getStats();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // FORWARDER
+    // ═══════════════════════════════════════════════════════════════════
+    private void runForwarder() {
+        while (running) {
+            try {
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        wait(); // Until add() queues something
+                    }
+                }
+                if (!forwardBatch()) {
+                    Thread.sleep(retryMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                System.out.println("❌ Outbox error: " + e.getMessage());
+            }
+        }
+        client.close();
+    }
+
+    /**
+     * Send the oldest queued orders as one batch. Returns true if every one of
+     * them was settled, so the next batch can follow straight away.
+     */
+    private boolean forwardBatch() throws IOException {
+        List<OrderServerClient.OrderRequest> batch = new ArrayList<>();
+        synchronized (this) {
+            for (OrderServerClient.OrderRequest request : pending.values()) {
+                if (batch.size() == batchSize) {
+                    break;
+                }
+                batch.add(request);
+            }
+        }
+        if (batch.isEmpty()) {
+            return true;
+        }
+        if (!breaker.allowRequest()) {
+            return false;
+        }
+
+        List<OrderServerClient.BatchResult> results;
+        try {
+            results = client.sendBatch(batch);
+            breaker.recordSuccess();
+        } catch (IOException e) {
+            breaker.recordFailure();
+            return false;
+        }
+
+        boolean settled = true;
+        List<OrderServerClient.OrderRequest> dropped = new ArrayList<>();
+        List<String> reasons = new ArrayList<>();
+        synchronized (this) {
+            if (out == null) {
+                return false; // Stopped while the batch was out; it is resent on the next start
+            }
+            OrderServerClient.BatchResult first = results.get(0);
+            if (first.isBatchRefused() && !isTransient(first) && batch.size() > 1) {
+                // Nothing was stored; resend in smaller batches until the refusal is down to one order
+                batchSize = Math.max(1, batch.size() / 2);
+                System.out.println("📮 Server refused a batch of " + batch.size() + " (" + first.message
+                        + "), sending " + batchSize + " at a time");
+                return true;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                OrderServerClient.BatchResult result = results.get(i);
+                OrderServerClient.OrderRequest request = batch.get(i);
+                if (result.isStored()) {
+                    System.out.println("📮 Queued order stored by server as #" + result.orderId);
+                    forwarded++;
+                } else if ("REJECTED".equals(result.status)) {
+                    // Final: the server checked the order and will never take it as it is
+                    System.out.println("✗ Queued order rejected by server: " + result.message);
+                    rejected++;
+                    dropped.add(request);
+                    reasons.add(result.message);
+                } else if (isTransient(result)) {
+                    settled = false; // Keep it for the next round
+                    continue;
+                } else {
+                    // Final as well: a malformed order or one the server cannot parse never heals
+                    System.out.println("✗ Queued order failed on server: " + result.message);
+                    failed++;
+                    dropped.add(request);
+                    reasons.add(result.message);
+                }
+                writeRecord(out, ACK_RECORD, request.orderKey.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                pending.remove(request.orderKey);
+                acksSinceCompaction++;
+            }
+            // ACKs need no sync: losing one only means resending an order the server already has. A dropped
+            // order is refunded below, though, and must not come back after a crash to be refunded again.
+            out.flush();
+            if (!dropped.isEmpty()) {
+                fileOut.getFD().sync();
+            }
+
+            if (pending.isEmpty() || (acksSinceCompaction >= MIN_ACKS_TO_COMPACT
+                    && acksSinceCompaction > pending.size())) {
+                compact();
+            }
+            if (pending.isEmpty()) {
+                System.out.println("📮 Outbox drained: " + getStats());
+            }
+        }
+
+        Listener current = listener;
+        if (current != null) {
+            for (int i = 0; i < dropped.size(); i++) {
+                current.onOrderDropped(dropped.get(i).restaurantId, dropped.get(i).totalCents, reasons.get(i));
+            }
+        }
+        return settled;
+    }
+
+    private static boolean isTransient(OrderServerClient.BatchResult result) {
+        return TRANSIENT_ERRORS.contains(result.message);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // FILE
+    // ═══════════════════════════════════════════════════════════════════
+    private void load() throws IOException {
+        pending.clear();
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                }
+                byte[] body;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length < 0 || length > file.length()) {
+                        throw new EOFException();
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                    crc.reset();
+                    crc.update(body);
+                    if ((int) crc.getValue() != checksum) {
+                        throw new EOFException();
+                    }
+                } catch (EOFException e) {
+                    System.out.println("⚠ Dropping torn record at the end of " + file.getName());
+                    break;
+                }
+
+                if (type == ORDER_RECORD) {
+                    OrderServerClient.OrderRequest request = readOrder(body);
+                    pending.put(request.orderKey, request);
+                } else if (type == ACK_RECORD) {
+                    pending.remove(new String(body, java.nio.charset.StandardCharsets.UTF_8));
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrite the file with only the pending orders: written to a temporary
+     * file and synced first, then moved over the old one.
+     */
+    private void compact() throws IOException {
+        closeFile();
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream tempOut = new FileOutputStream(temp)) {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(tempOut));
+            for (OrderServerClient.OrderRequest request : pending.values()) {
+                writeRecord(data, ORDER_RECORD, orderBody(request));
+            }
+            data.flush();
+            tempOut.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        acksSinceCompaction = 0;
+
+        fileOut = new FileOutputStream(file, true);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut));
+    }
+
+    private void closeFile() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+            out = null;
+            fileOut = null;
+        }
+    }
+
+    private static void writeRecord(DataOutputStream data, byte type, byte[] body) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        data.writeByte(type);
+        data.writeInt(body.length);
+        data.writeInt((int) crc.getValue());
+        data.write(body);
+    }
+
+    private static byte[] orderBody(OrderServerClient.OrderRequest request) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeUTF(request.orderKey);
+        data.writeInt(request.restaurantId);
+        data.writeLong(request.totalCents);
+        data.writeInt(request.items.size());
+        for (BasketItem item : request.items) {
+            Food food = item.getFood();
+            data.writeInt(food.getId());
+            data.writeInt(item.getQuantity());
+            data.writeLong(food.getPriceCents());
+            data.writeUTF(food.getName());
+            data.writeUTF(food.getType() != null ? food.getType() : "");
+        }
+        return bytes.toByteArray();
+    }
+
+    private static OrderServerClient.OrderRequest readOrder(byte[] body) throws IOException {
+        DataInputStream data = new DataInputStream(new java.io.ByteArrayInputStream(body));
+        String orderKey = data.readUTF();
+        int restaurantId = data.readInt();
+        long totalCents = data.readLong();
+        int itemCount = data.readInt();
+        List<BasketItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            int foodId = data.readInt();
+            int quantity = data.readInt();
+            long priceCents = data.readLong();
+            Food food = new Food(data.readUTF(), data.readUTF(), priceCents);
+            food.setId(foodId);
+            food.setRestaurantId(restaurantId);
+            items.add(new BasketItem(food, quantity));
+        }
+        return new OrderServerClient.OrderRequest(restaurantId, totalCents, items, orderKey);
+    }
+}
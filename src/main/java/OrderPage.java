@@ -0,0 +1,62 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of orders plus an opaque cursor pointing just past its last row.
+ * Orders are sorted newest first by (date, id); the cursor encodes the
+ * (date, id) of the last row so the next page can resume with a keyset
+ * query instead of an OFFSET scan.
+ */
+public class OrderPage<T> {
+    private final List<T> items;
+    private final String nextCursor; // null when there are no more pages
+
+    public OrderPage(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CURSOR ENCODING - "date|id", base64 so callers treat it as opaque
+    // ═══════════════════════════════════════════════════════════════════
+    static String encodeCursor(String date, int id) {
+        String raw = date + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodeCursorDate(String cursor) {
+        String raw = decode(cursor);
+        return raw.substring(0, raw.lastIndexOf('|'));
+    }
+
+    static int decodeCursorId(String cursor) {
+        String raw = decode(cursor);
+        return Integer.parseInt(raw.substring(raw.lastIndexOf('|') + 1));
+    }
+
+    private static String decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (raw.lastIndexOf('|') < 0) {
+                throw new IllegalArgumentException("Malformed order cursor");
+            }
+            return raw;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed order cursor: " + cursor, e);
+        }
+    }
+}
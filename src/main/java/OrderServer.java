@@ -1,22 +1,54 @@
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 public class OrderServer {
 
     private static final String APP_DIR = System.getProperty("user.home") + java.io.File.separator
             + ".food_ordering_app";
     private static final String DB_URL = "jdbc:sqlite:" + APP_DIR + java.io.File.separator + "food_ordering.db";
+    private static final ConnectionPool POOL = ConnectionPool.forUrl(DB_URL);
+    private static ClientExecutor clientExecutor;
+    private static GroupCommitWriter groupCommit; // null when each order commits on its own
+    private static PriceIndex prices; // null when client prices are trusted
+    private static EventBroadcaster events;
+    // An idle blocking-transport connection still holds a worker, so drop it soon; clients reconnect on demand
+    private static final int IDLE_TIMEOUT_MS = Integer.getInteger("foodordering.server.idleTimeoutMs", 5000);
+    // Events a blocking-transport subscriber may have queued before it is dropped
+    private static final int SUBSCRIBER_QUEUE = Integer.getInteger("foodordering.server.events.queue", 256);
+    // Each blocking-transport subscriber holds a writer thread, so only this many are served at once
+    private static final int MAX_SUBSCRIBERS = Integer.getInteger("foodordering.server.events.maxSubscribers", 64);
+    private static final java.util.concurrent.atomic.AtomicInteger ACTIVE_SUBSCRIBERS =
+            new java.util.concurrent.atomic.AtomicInteger();
+    private static final java.util.concurrent.atomic.AtomicInteger SUBSCRIBER_THREADS =
+            new java.util.concurrent.atomic.AtomicInteger();
+    private static final int MAX_BATCH_ORDERS = Integer.getInteger("foodordering.server.maxBatchOrders", 1000);
+    // Rows per multi-row INSERT, keeping each statement under SQLite's 999 bound parameters
+    private static final int ORDER_ROWS_PER_INSERT = 999 / 5;
+    private static final int ITEM_ROWS_PER_INSERT = 999 / 5;
+    private static final int MAX_KEYS_PER_QUERY = 500;
+    // Order key lookups; DatabaseManager.checkQueryPlans makes sure they stay on the unique index
+    static final String ORDER_ID_BY_KEY_SQL = "SELECT id FROM orders WHERE order_key = ?";
+    static final String ORDER_IDS_BY_KEYS_SQL_PREFIX = "SELECT order_key, id FROM orders WHERE order_key IN (";
+    // Order keys stored recently, so resent orders are answered without pricing or SQL
+    private static final OrderKeyCache ORDER_KEYS = OrderKeyCache.fromSystemProperties();
+    private static final java.time.format.DateTimeFormatter DATE_FORMAT = java.time.format.DateTimeFormatter
+            .ofPattern("yyyy-MM-dd HH:mm:ss");
 
     public static void main(String[] args) {
         int port = 6000; // default
@@ -31,16 +63,52 @@ public class OrderServer {
         System.out.println("═══════════════════════════════════════════════════════");
         System.out.println("🟢 Order Server started on port " + port);
         System.out.println("   Database: " + DB_URL);
+        System.out.println("   Pool: size=" + POOL.getMaxSize()
+                + (POOL.isDedicatedWriter() ? ", dedicated writer" : ", shared writer"));
+        System.out.println("   Storage: " + POOL.getProfile());
+
+        clientExecutor = ClientExecutor.fromSystemProperties();
+        if (Boolean.parseBoolean(System.getProperty("foodordering.server.groupCommit", "true"))) {
+            groupCommit = GroupCommitWriter.fromSystemProperties(POOL);
+        }
+        System.out.println("   Writes: " + (groupCommit != null ? "group commit" : "one transaction per order"));
+        if (Boolean.parseBoolean(System.getProperty("foodordering.server.validatePrices", "true"))) {
+            prices = PriceIndex.fromSystemProperties(POOL);
+            try {
+                prices.refresh();
+            } catch (SQLException e) {
+                System.out.println("⚠ Could not load prices yet: " + e.getMessage());
+            }
+            System.out.println("   Prices: validated against " + prices.size() + " menu items");
+        } else {
+            System.out.println("   Prices: trusted from clients");
+        }
+        events = EventBroadcaster.fromSystemProperties();
+        boolean nio = "nio".equalsIgnoreCase(System.getProperty("foodordering.server.transport", "blocking"));
+        System.out.println("   Transport: " + (nio ? "nio selector" : "blocking"));
+        System.out.println("   Clients: " + clientExecutor.getStats());
         System.out.println("═══════════════════════════════════════════════════════");
 
+        if (nio) {
+            // One selector thread frames requests; the executor persists orders
+            try {
+                new NioOrderTransport(port, clientExecutor).run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
         try (ServerSocket serverSocket = new ServerSocket(port)) {
 
             while (true) {
                 Socket clientSocket = serverSocket.accept();
                 System.out.println("\n📨 Client connected: " + clientSocket.getInetAddress());
 
-                // Handle each client in a new thread for concurrent support
-                new Thread(() -> handleClient(clientSocket)).start();
+                // Handle each client on the bounded executor; turn it away when saturated
+                if (!clientExecutor.submit(() -> handleClient(clientSocket))) {
+                    rejectClient(clientSocket);
+                }
             }
 
         } catch (Exception e) {
@@ -48,130 +116,740 @@ public class OrderServer {
         }
     }
 
-    private static void handleClient(Socket clientSocket) {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-                PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true)) {
+    private static void rejectClient(Socket clientSocket) {
+        System.out.println("⚠ Server busy, rejecting " + clientSocket.getInetAddress());
+        try (Socket socket = clientSocket;
+                PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+            out.println("ERROR:Server busy");
+        } catch (Exception e) {
+            System.out.println("❌ Error rejecting client: " + e.getMessage());
+        }
+    }
+
+    /**
+     * One-line status report for the STATS command.
+     */
+    static String getStats() {
+        String stats = "STATS:" + clientExecutor.getStats() + " " + POOL.getStats();
+        if (groupCommit != null) {
+            stats += " " + groupCommit.getStats();
+        }
+        if (prices != null) {
+            stats += " " + prices.getStats();
+        }
+        stats += " " + ORDER_KEYS.getStats() + " " + events.getStats();
+        return stats;
+    }
+
+    /**
+     * Response for the REFRESH_PRICES command: reload the price index in the
+     * background after a menu change.
+     */
+    static String refreshPrices() {
+        if (prices == null) {
+            return "ERROR:Price validation is disabled";
+        }
+        prices.requestRefresh();
+        return "OK:Price refresh scheduled";
+    }
 
-            String line = in.readLine();
+    static EventBroadcaster getEvents() {
+        return events;
+    }
 
-            if ("ORDER".equals(line)) {
-                processOrder(in, out);
+    /**
+     * Response for NOTIFY lines. Clients report changes the server did not
+     * make itself (menu edits, orders stored locally while it was down) and
+     * the server rebroadcasts them to subscribers:
+     *
+     * NOTIFY:MENU_CHANGED:restaurantId
+     * NOTIFY:NEW_ORDER:orderId:restaurantId
+     */
+    static String handleNotify(String line) {
+        String[] parts = line.split(":");
+        try {
+            if (parts.length == 3 && "MENU_CHANGED".equals(parts[1])) {
+                if (prices != null) {
+                    prices.requestRefresh();
+                }
+                events.publish(EventBroadcaster.menuChanged(Integer.parseInt(parts[2])));
+                return "OK:Notified";
+            }
+            if (parts.length == 4 && "NEW_ORDER".equals(parts[1])) {
+                events.publish(EventBroadcaster.newOrder(Integer.parseInt(parts[2]), Integer.parseInt(parts[3])));
+                return "OK:Notified";
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the error below
+        }
+        return "ERROR:Unknown notification";
+    }
+
+    /**
+     * Serve one connection. Connections are persistent: a client may send any
+     * number of ORDER blocks (or STATS requests) back to back and the server
+     * answers each in order until the client closes the socket. A first byte
+     * of BinaryProtocol.MAGIC switches the connection to binary frames.
+     * After SUBSCRIBE the socket is handed to an event writer thread and the
+     * worker returns to the pool.
+     */
+    private static void handleClient(Socket socket) {
+        boolean handedOff = false;
+        try {
+            BufferedInputStream input = new BufferedInputStream(socket.getInputStream());
+            OutputStream output = socket.getOutputStream();
+
+            // Don't let idle persistent connections pin a worker thread for long
+            socket.setSoTimeout(IDLE_TIMEOUT_MS);
+
+            input.mark(1);
+            int firstByte = input.read();
+            if (firstByte < 0) {
+                return;
+            }
+            input.reset();
+            if (firstByte == BinaryProtocol.MAGIC) {
+                serveBinary(socket, input, output);
             } else {
+                handedOff = serveText(socket, new BufferedReader(new InputStreamReader(input)),
+                        new PrintWriter(output, true));
+            }
+
+        } catch (java.net.SocketTimeoutException e) {
+            System.out.println("⌛ Closing idle connection: " + socket.getInetAddress());
+        } catch (Exception e) {
+            System.out.println("❌ Error handling client: " + e.getMessage());
+        } finally {
+            if (!handedOff) {
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Answer text commands until the client closes the socket. Returns true
+     * if the connection became an event subscription, whose writer thread
+     * now owns the socket.
+     */
+    private static boolean serveText(Socket socket, BufferedReader in, PrintWriter out) throws IOException {
+        OrderBuffer order = newOrderBuffer(); // Reused by every order on this connection
+        OrderBuffer.Batch batch = null; // Created by the first ORDER_BATCH
+        boolean firstLine = true;
+        String line;
+        while ((line = in.readLine()) != null) {
+            if ("ORDER".equals(line)) {
+                processOrder(in, out, order);
+            } else if ("ORDER_BATCH".equals(line)) {
+                if (batch == null) {
+                    batch = newOrderBatch();
+                }
+                processBatch(in, out, batch);
+            } else if ("STATS".equals(line)) {
+                out.println(getStats());
+            } else if ("REFRESH_PRICES".equals(line)) {
+                out.println(refreshPrices());
+            } else if (line.startsWith("NOTIFY:")) {
+                out.println(handleNotify(line));
+            } else if ("SUBSCRIBE".equals(line)) {
+                // The connection becomes a one-way event stream until either side closes it
+                return serveSubscription(socket, out);
+            } else if (line.isEmpty()) {
+                continue;
+            } else if (firstLine) {
                 // Legacy format - just print and acknowledge
                 System.out.println("📦 Received (legacy): " + line);
                 while ((line = in.readLine()) != null) {
                     System.out.println(line);
                 }
                 out.println("OK");
+                break;
+            } else {
+                out.println("ERROR:Unknown command");
             }
+            firstLine = false;
+        }
+        return false;
+    }
 
-            clientSocket.close();
+    /**
+     * Answer binary frames one at a time until the client closes the socket.
+     */
+    private static void serveBinary(Socket socket, BufferedInputStream in, OutputStream out) throws IOException {
+        System.out.println("🔢 Binary protocol: " + socket.getInetAddress());
+        BinaryProtocol.FrameReader frames = new BinaryProtocol.FrameReader(in);
+        OrderBuffer order = newOrderBuffer();
+        OrderBuffer.Batch batch = null;
+        while (frames.next()) {
+            ByteBuffer response;
+            if (frames.type() == BinaryProtocol.ORDER) {
+                order.reset();
+                order.decode(frames.payload());
+                response = handleBinaryOrder(order);
+            } else if (frames.type() == BinaryProtocol.ORDER_BATCH) {
+                if (batch == null) {
+                    batch = newOrderBatch();
+                }
+                batch.reset();
+                batch.decode(frames.payload());
+                response = handleBinaryBatch(batch);
+            } else {
+                response = handleFrame(frames.type(), frames.payload());
+            }
+            out.write(response.array(), 0, response.limit());
+            out.flush();
+        }
+    }
 
-        } catch (Exception e) {
-            System.out.println("❌ Error handling client: " + e.getMessage());
+    /**
+     * Response frame for a binary request frame other than ORDER, which the
+     * transports decode into an OrderBuffer themselves.
+     */
+    static ByteBuffer handleFrame(byte type, ByteBuffer payload) {
+        if (type == BinaryProtocol.COMMAND) {
+            String line = new String(payload.array(), payload.arrayOffset() + payload.position(),
+                    payload.remaining(), java.nio.charset.StandardCharsets.UTF_8);
+            return BinaryProtocol.reply(handleCommand(line));
         }
+        return BinaryProtocol.reply("ERROR:Unknown frame type");
     }
 
-    private static void processOrder(BufferedReader in, PrintWriter out) {
-        try {
-            int restaurantId = -1;
-            double totalAmount = 0;
-            List<OrderItem> items = new ArrayList<>();
+    /**
+     * Request/response commands that may also be sent inside COMMAND frames.
+     * SUBSCRIBE needs a text connection of its own.
+     */
+    static String handleCommand(String line) {
+        if ("STATS".equals(line)) {
+            return getStats();
+        }
+        if ("REFRESH_PRICES".equals(line)) {
+            return refreshPrices();
+        }
+        if (line.startsWith("NOTIFY:")) {
+            return handleNotify(line);
+        }
+        return "ERROR:Unknown command";
+    }
 
-            String line;
-            while ((line = in.readLine()) != null) {
-                if ("END_ORDER".equals(line)) {
+    /**
+     * Turn the connection into an event stream. Events are written by a
+     * thread of its own rather than a pooled worker, so open GUIs never use up
+     * the executor that serves orders. Publishers only queue; a subscriber
+     * whose queue overflows is dropped so one stalled GUI cannot hold up order
+     * processing. Above MAX_SUBSCRIBERS the subscription is refused as busy.
+     * Returns whether the connection was handed to a writer thread.
+     */
+    private static boolean serveSubscription(Socket socket, PrintWriter out) {
+        if (ACTIVE_SUBSCRIBERS.incrementAndGet() > MAX_SUBSCRIBERS) {
+            ACTIVE_SUBSCRIBERS.decrementAndGet();
+            out.println("ERROR:Server busy");
+            System.out.println("⚠ Refused subscriber, " + MAX_SUBSCRIBERS + " already connected: "
+                    + socket.getInetAddress());
+            return false;
+        }
+
+        BlockingQueue<String> queue = new ArrayBlockingQueue<>(SUBSCRIBER_QUEUE);
+        EventBroadcaster.Subscriber subscriber = new EventBroadcaster.Subscriber() {
+            private volatile boolean closed;
+
+            @Override
+            public boolean offer(String event) {
+                return !closed && queue.offer(event);
+            }
+
+            @Override
+            public void close() {
+                closed = true;
+                queue.clear();
+                queue.offer(""); // Wake the writer loop so it exits
+            }
+        };
+
+        out.println("OK:Subscribed");
+        events.subscribe(subscriber);
+        System.out.println("🔔 Client subscribed to events: " + socket.getInetAddress());
+
+        Thread writer = new Thread(() -> writeEvents(socket, out, queue, subscriber),
+                "event-subscriber-" + SUBSCRIBER_THREADS.incrementAndGet());
+        writer.setDaemon(true);
+        writer.start();
+        return true;
+    }
+
+    private static void writeEvents(Socket socket, PrintWriter out, BlockingQueue<String> queue,
+            EventBroadcaster.Subscriber subscriber) {
+        try {
+            while (true) {
+                String event = queue.take();
+                if (event.isEmpty()) {
                     break;
                 }
-
-                if (line.startsWith("RESTAURANT_ID:")) {
-                    restaurantId = Integer.parseInt(line.substring(14));
-                } else if (line.startsWith("TOTAL:")) {
-                    totalAmount = Double.parseDouble(line.substring(6));
-                } else if (line.startsWith("ITEM:")) {
-                    // Format: ITEM:name|quantity|price
-                    String[] parts = line.substring(5).split("\\|");
-                    if (parts.length == 3) {
-                        items.add(new OrderItem(
-                                parts[0],
-                                Integer.parseInt(parts[1]),
-                                Double.parseDouble(parts[2])));
-                    }
+                out.println(event);
+                if (out.checkError()) {
+                    break; // Client went away; noticed at the latest on the next heartbeat
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            events.unsubscribe(subscriber);
+            ACTIVE_SUBSCRIBERS.decrementAndGet();
+            closeQuietly(socket);
+            System.out.println("🔕 Subscriber disconnected: " + socket.getInetAddress());
+        }
+    }
+
+    /**
+     * A buffer for a connection's orders. Names are only decoded when there
+     * is no price index to supply them.
+     */
+    static OrderBuffer newOrderBuffer() {
+        return new OrderBuffer(prices == null);
+    }
+
+    static OrderBuffer.Pool newOrderBufferPool(int maxIdle) {
+        return new OrderBuffer.Pool(prices == null, maxIdle);
+    }
 
-            // Store the order in database
-            boolean success = storeOrder(restaurantId, totalAmount, items);
+    static OrderBuffer.Batch newOrderBatch() {
+        return new OrderBuffer.Batch(prices == null, MAX_BATCH_ORDERS);
+    }
 
-            if (success) {
-                System.out.println("\n📦 New Order Stored:");
-                System.out.println("   Restaurant ID: " + restaurantId);
-                System.out.println("   Total: $" + String.format("%.2f", totalAmount));
-                System.out.println("   Items:");
-                for (OrderItem item : items) {
-                    System.out.println("     • " + item.name + " x" + item.quantity +
-                            " ($" + String.format("%.2f", item.price * item.quantity) + ")");
+    private static void processOrder(BufferedReader in, PrintWriter out, OrderBuffer order) {
+        try {
+            order.reset();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if ("END_ORDER".equals(line)) {
+                    break;
                 }
-                System.out.println("───────────────────────────────────────────────────────");
-                out.println("OK:Order stored successfully");
-            } else {
-                out.println("ERROR:Failed to store order");
+                order.parseLine(line);
             }
 
+            out.println(handleOrder(order));
+
         } catch (Exception e) {
             System.out.println("❌ Error processing order: " + e.getMessage());
             out.println("ERROR:" + e.getMessage());
         }
     }
 
-    private static boolean storeOrder(int restaurantId, double totalAmount, List<OrderItem> items) {
-        String insertOrder = "INSERT INTO orders(date, total_amount, restaurant_id) VALUES(?,?,?)";
-        String insertOrderItem = "INSERT INTO order_items(order_id, food_name, quantity, price) VALUES(?,?,?,?)";
-
-        java.time.LocalDateTime now = java.time.LocalDateTime.now();
-        java.time.format.DateTimeFormatter formatter = java.time.format.DateTimeFormatter
-                .ofPattern("yyyy-MM-dd HH:mm:ss");
-        String dateStr = now.format(formatter);
+    /**
+     * Store one order parsed (by OrderBuffer.parseLine) from the lines between
+     * ORDER and END_ORDER. Returns the single-line response for the client.
+     * Shared by the blocking and NIO transports.
+     *
+     * Format:
+     * CORRELATION_ID:id (optional, echoed in the response)
+     * ORDER_KEY:key (optional idempotency key; a resent order is answered OK with the original id)
+     * RESTAURANT_ID:n
+     * TOTAL:amount (decimal, e.g. 12.50; parsed exactly into cents)
+     * ITEMS:count
+     * ITEM:name|quantity|price|foodId (repeated; foodId is omitted by older clients)
+     */
+    static String handleOrder(OrderBuffer order) {
+        if (order.error != null) {
+            System.out.println("❌ Error processing order: " + order.error);
+            return response("ERROR", order.correlationId, order.error);
+        }
+        try {
+            OrderResult result = acceptOrder(order);
+            return response(result.status, order.correlationId, result.message);
+        } catch (Exception e) {
+            System.out.println("❌ Error processing order: " + e.getMessage());
+            return response("ERROR", order.correlationId, e.getMessage());
+        }
+    }
 
-        Connection conn = null;
+    /**
+     * Store one order decoded (by OrderBuffer.decode) from an ORDER frame and
+     * return its RESULT frame.
+     */
+    static ByteBuffer handleBinaryOrder(OrderBuffer order) {
+        if (order.error != null) {
+            return BinaryProtocol.result(order.binaryCorrelationId, "ERROR", -1, order.error);
+        }
         try {
-            conn = DriverManager.getConnection(DB_URL);
-            conn.setAutoCommit(false);
+            OrderResult result = acceptOrder(order);
+            return BinaryProtocol.result(order.binaryCorrelationId, result.status, result.orderId, result.message);
+        } catch (Exception e) {
+            System.out.println("❌ Error processing order: " + e.getMessage());
+            return BinaryProtocol.result(order.binaryCorrelationId, "ERROR", -1, e.getMessage());
+        }
+    }
 
-            int orderId = -1;
-            try (PreparedStatement pstmt = conn.prepareStatement(insertOrder, Statement.RETURN_GENERATED_KEYS)) {
-                pstmt.setString(1, dateStr);
-                pstmt.setDouble(2, totalAmount);
-                pstmt.setInt(3, restaurantId);
-                pstmt.executeUpdate();
+    // ═══════════════════════════════════════════════════════════════════
+    // ORDER BATCHES
+    // ═══════════════════════════════════════════════════════════════════
 
-                try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        orderId = rs.getInt(1);
+    /**
+     * Read ORDER ... END_ORDER blocks until END_BATCH and answer the batch.
+     * A batch cut off by the client closing the connection is not stored.
+     */
+    private static void processBatch(BufferedReader in, PrintWriter out, OrderBuffer.Batch batch) {
+        try {
+            batch.reset();
+            OrderBuffer order = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (order != null) {
+                    if ("END_ORDER".equals(line)) {
+                        order = null;
+                    } else {
+                        order.parseLine(line);
                     }
+                } else if ("ORDER".equals(line)) {
+                    order = batch.next();
+                } else if ("END_BATCH".equals(line)) {
+                    out.println(handleBatch(batch));
+                    return;
                 }
             }
+            System.out.println("❌ Batch cut off before END_BATCH, nothing stored");
 
-            if (orderId != -1) {
-                try (PreparedStatement pstmtItem = conn.prepareStatement(insertOrderItem)) {
-                    for (OrderItem item : items) {
-                        pstmtItem.setInt(1, orderId);
-                        pstmtItem.setString(2, item.name);
-                        pstmtItem.setInt(3, item.quantity);
-                        pstmtItem.setDouble(4, item.price);
-                        pstmtItem.addBatch();
-                    }
-                    pstmtItem.executeBatch();
+        } catch (Exception e) {
+            System.out.println("❌ Error processing batch: " + e.getMessage());
+            out.println("ERROR:" + e.getMessage());
+        }
+    }
+
+    /**
+     * Store a batch read from ORDER_BATCH, ORDER ... END_ORDER blocks (format
+     * as in handleOrder) and END_BATCH. Returns the response lines:
+     *
+     * BATCH_RESULT:orderCount
+     * ORDER_RESULT:index:STATUS:orderId:message (one per order, in request order; orderId -1 if not stored)
+     * END_BATCH
+     *
+     * Partial failure: every order is validated on its own, so one that is
+     * malformed (ERROR) or refused by pricing (REJECTED) does not affect the
+     * others. The orders that pass are stored together in one transaction
+     * and either all commit (OK with their ids) or none do (ERROR for each,
+     * safe to resend). A batch that cannot be read at all, e.g. one over
+     * foodordering.server.maxBatchOrders, is answered with a single
+     * ERROR:message line instead.
+     */
+    static String handleBatch(OrderBuffer.Batch batch) {
+        if (batch.error != null) {
+            System.out.println("❌ Error processing batch: " + batch.error);
+            return "ERROR:" + batch.error;
+        }
+        OrderResult[] results = acceptBatch(batch);
+
+        StringBuilder sb = new StringBuilder(32 + results.length * 48);
+        sb.append("BATCH_RESULT:").append(results.length).append('\n');
+        for (int i = 0; i < results.length; i++) {
+            sb.append("ORDER_RESULT:").append(i).append(':').append(results[i].status).append(':')
+                    .append(results[i].orderId).append(':').append(results[i].message).append('\n');
+        }
+        return sb.append("END_BATCH").toString();
+    }
+
+    /**
+     * Store a batch decoded from an ORDER_BATCH frame and return its
+     * BATCH_RESULT frame; same semantics as handleBatch.
+     */
+    static ByteBuffer handleBinaryBatch(OrderBuffer.Batch batch) {
+        if (batch.error != null) {
+            System.out.println("❌ Error processing batch: " + batch.error);
+            return BinaryProtocol.reply("ERROR:" + batch.error);
+        }
+        OrderResult[] results = acceptBatch(batch);
+
+        byte[][] messages = new byte[results.length][];
+        int length = 2;
+        for (int i = 0; i < results.length; i++) {
+            messages[i] = BinaryProtocol.utf8(results[i].message);
+            length += 4 + 1 + 4 + 2 + messages[i].length;
+        }
+        ByteBuffer frame = BinaryProtocol.frame(BinaryProtocol.BATCH_RESULT, length);
+        frame.putShort((short) results.length);
+        for (int i = 0; i < results.length; i++) {
+            frame.putInt(batch.get(i).binaryCorrelationId)
+                    .put(BinaryProtocol.statusCode(results[i].status))
+                    .putInt(results[i].orderId);
+            BinaryProtocol.putString(frame, messages[i]);
+        }
+        return frame.flip();
+    }
+
+    /**
+     * Validate every order of a batch, then store the valid ones in a single
+     * transaction. Returns one result per order.
+     */
+    private static OrderResult[] acceptBatch(OrderBuffer.Batch batch) {
+        int size = batch.size();
+        OrderResult[] results = new OrderResult[size];
+        List<OrderBuffer> accepted = new ArrayList<>(size);
+        List<Integer> acceptedIndexes = new ArrayList<>(size);
+
+        boolean pricesReady = prices == null || prices.isLoaded() || (prices.refreshOnMiss() && prices.isLoaded());
+        for (int i = 0; i < size; i++) {
+            OrderBuffer order = batch.get(i);
+            if (order.error != null) {
+                results[i] = new OrderResult("ERROR", order.error, -1);
+                continue;
+            }
+            int storedId = order.orderKey != null ? ORDER_KEYS.get(order.orderKey) : -1;
+            if (storedId != -1) {
+                results[i] = duplicate(storedId);
+                continue;
+            }
+            if (prices != null) {
+                if (!pricesReady) {
+                    results[i] = new OrderResult("ERROR", "Prices unavailable", -1);
+                    continue;
+                }
+                String rejection;
+                try {
+                    rejection = priceOrder(order);
+                } catch (ArithmeticException e) {
+                    rejection = "Order total is out of range";
+                }
+                if (rejection != null) {
+                    storedId = findStoredOrder(order.orderKey);
+                    results[i] = storedId != -1 ? duplicate(storedId) : new OrderResult("REJECTED", rejection, -1);
+                    continue;
                 }
-                conn.commit();
-                return true;
+            }
+            accepted.add(order);
+            acceptedIndexes.add(i);
+        }
+
+        int[] orderIds = accepted.isEmpty() ? new int[0] : storeOrders(accepted);
+        for (int a = 0; a < accepted.size(); a++) {
+            int index = acceptedIndexes.get(a);
+            OrderBuffer order = accepted.get(a);
+            if (orderIds == null) {
+                results[index] = new OrderResult("ERROR", "Failed to store batch", -1);
+                continue;
+            }
+            if (order.orderKey != null) {
+                ORDER_KEYS.put(order.orderKey, orderIds[a]);
+            }
+            if (order.duplicate) {
+                results[index] = duplicate(orderIds[a]);
             } else {
-                conn.rollback();
-                return false;
+                results[index] = new OrderResult("OK", "Order stored successfully", orderIds[a]);
+                events.publish(EventBroadcaster.newOrder(orderIds[a], order.restaurantId));
+            }
+        }
+
+        int stored = orderIds == null ? 0 : accepted.size();
+        System.out.println("\n📦 Batch of " + size + " orders: " + stored + " stored, "
+                + (size - accepted.size()) + " refused, " + (accepted.size() - stored) + " failed");
+        return results;
+    }
+
+    /**
+     * Outcome of one order in either protocol.
+     */
+    private static final class OrderResult {
+        final String status; // OK, ERROR or REJECTED
+        final String message;
+        final int orderId; // -1 unless stored
+
+        OrderResult(String status, String message, int orderId) {
+            this.status = status;
+            this.message = message;
+            this.orderId = orderId;
+        }
+    }
+
+    /**
+     * Validate and store a decoded order.
+     */
+    private static OrderResult acceptOrder(OrderBuffer order) {
+        if (order.orderKey != null) {
+            int storedId = ORDER_KEYS.get(order.orderKey);
+            if (storedId != -1) {
+                return duplicate(storedId);
+            }
+        }
+
+        if (prices != null) {
+            if (!prices.isLoaded() && !(prices.refreshOnMiss() && prices.isLoaded())) {
+                // Can't validate yet; a plain error lets the client retry instead of treating it as refused
+                return new OrderResult("ERROR", "Prices unavailable", -1);
+            }
+            String rejection = priceOrder(order);
+            if (rejection != null) {
+                int storedId = findStoredOrder(order.orderKey);
+                if (storedId != -1) {
+                    return duplicate(storedId); // Stored before the menu changed; a resend must not undo that
+                }
+                System.out.println("⛔ Order rejected: " + rejection);
+                return new OrderResult("REJECTED", rejection, -1);
+            }
+        }
+
+        // Store the order in database
+        int orderId = storeOrder(order);
+
+        if (orderId == -1) {
+            return new OrderResult("ERROR", "Failed to store order", -1);
+        }
+        if (order.orderKey != null) {
+            ORDER_KEYS.put(order.orderKey, orderId);
+        }
+        if (order.duplicate) {
+            return duplicate(orderId);
+        }
+        events.publish(EventBroadcaster.newOrder(orderId, order.restaurantId));
+        System.out.println("\n📦 New Order Stored:");
+        System.out.println("   Restaurant ID: " + order.restaurantId);
+        System.out.println("   Total: " + Money.formatDollars(order.totalCents));
+        System.out.println("   Items:");
+        for (int i = 0; i < order.itemCount; i++) {
+            System.out.println("     • " + order.label(i) + " x" + order.quantities[i] +
+                    " (" + Money.formatDollars(Money.times(order.priceCents[i], order.quantities[i])) + ")");
+        }
+        System.out.println("───────────────────────────────────────────────────────");
+        return new OrderResult("OK", "Order stored successfully", orderId);
+    }
+
+    /**
+     * Answer for an order whose key was stored before: OK with the original
+     * id, so a client that missed the first answer gets it now.
+     */
+    private static OrderResult duplicate(int orderId) {
+        System.out.println("♻ Duplicate of order #" + orderId + " ignored");
+        return new OrderResult("OK", "Order already stored", orderId);
+    }
+
+    /**
+     * Id of the order stored under this key, or -1 if there is none (or no
+     * key). Asks the database, for keys the cache no longer holds.
+     */
+    private static int findStoredOrder(String orderKey) {
+        if (orderKey == null) {
+            return -1;
+        }
+        try (Connection conn = POOL.borrow()) {
+            return findOrderByKey(conn, orderKey);
+        } catch (SQLException e) {
+            System.out.println("SQL Error: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Check an order against the price index. Returns the reason to reject
+     * it, or null when every item exists, belongs to the restaurant, carries
+     * the current price and the total matches. If the index disagrees with
+     * the client it is refreshed (rate-limited) and the order checked again,
+     * so a menu edit the index hasn't seen yet doesn't reject good orders.
+     */
+    private static String priceOrder(OrderBuffer order) {
+        if (order.itemCount == 0) {
+            return "Order has no items";
+        }
+        String rejection = checkPrices(order);
+        if (rejection != null && prices.refreshOnMiss()) {
+            rejection = checkPrices(order);
+        }
+        return rejection;
+    }
+
+    private static String checkPrices(OrderBuffer order) {
+        int restaurantId = order.restaurantId;
+        long expectedTotal = 0;
+        for (int i = 0; i < order.itemCount; i++) {
+            if (order.quantities[i] <= 0) {
+                return "Invalid quantity for " + order.label(i);
+            }
+            PriceIndex.Entry entry = order.foodIds[i] > 0
+                    ? prices.byId(order.foodIds[i])
+                    : prices.byName(restaurantId, order.names[i]);
+            if (entry == null) {
+                return "Unknown item: " + order.label(i);
             }
+            if (entry.restaurantId != restaurantId) {
+                return order.label(i) + " is not on this restaurant's menu";
+            }
+            if (entry.priceCents != order.priceCents[i]) {
+                return "Price of " + entry.name + " is now " + Money.formatDollars(entry.priceCents);
+            }
+            // Store the server's own name and id, e.g. for clients that only sent a name
+            order.names[i] = entry.name;
+            order.foodIds[i] = entry.foodId;
+            expectedTotal = Math.addExact(expectedTotal, Money.times(entry.priceCents, order.quantities[i]));
+        }
+        if (expectedTotal != order.totalCents) {
+            return "Total " + Money.formatDollars(order.totalCents) + " does not match items ("
+                    + Money.formatDollars(expectedTotal) + ")";
+        }
+        return null;
+    }
+
+    /**
+     * STATUS:message, or STATUS:correlationId:message when the client tagged
+     * the order so it can match pipelined responses.
+     */
+    static String response(String status, String correlationId, String message) {
+        if (correlationId == null) {
+            return status + ":" + message;
+        }
+        return status + ":" + correlationId + ":" + message;
+    }
 
+    /**
+     * Persist one order. Returns its id, or -1 if it was not stored.
+     */
+    private static int storeOrder(OrderBuffer order) {
+        try {
+            return write(conn -> insertOrder(conn, order));
         } catch (SQLException e) {
             System.out.println("SQL Error: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Persist several orders in one transaction. Returns their ids in the
+     * same order, or null if none were stored.
+     */
+    private static int[] storeOrders(List<OrderBuffer> orders) {
+        try {
+            return write(conn -> insertOrders(conn, orders));
+        } catch (SQLException e) {
+            System.out.println("SQL Error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Run SQL work in a transaction on the writer connection: through group
+     * commit when it is enabled, otherwise in a transaction of its own.
+     */
+    private static <T> T write(GroupCommitWriter.WriteTask<T> task) throws SQLException {
+        if (groupCommit != null) {
+            // Acknowledge only after the batch containing this write has committed
+            try {
+                return groupCommit.submit(task).join();
+            } catch (java.util.concurrent.CompletionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof SQLException ? (SQLException) cause : new SQLException(cause);
+            }
+        }
+
+        Connection conn = null;
+        try {
+            conn = POOL.borrowWriter();
+            conn.setAutoCommit(false);
+
+            T result = task.write(conn);
+            conn.commit();
+            return result;
+
+        } catch (SQLException | RuntimeException e) {
             if (conn != null) {
                 try {
                     conn.rollback();
@@ -179,7 +857,7 @@ public class OrderServer {
                     System.out.println(ex.getMessage());
                 }
             }
-            return false;
+            throw e;
         } finally {
             if (conn != null) {
                 try {
@@ -192,16 +870,211 @@ public class OrderServer {
         }
     }
 
-    // Simple inner class for order items
-    private static class OrderItem {
-        String name;
-        int quantity;
-        double price;
+    /**
+     * Insert an order and its items, straight from the buffer, on a connection
+     * that is already inside a transaction. Returns the new order id, or the
+     * existing one (marking the order a duplicate) if its key is already stored.
+     */
+    private static int insertOrder(Connection conn, OrderBuffer order) throws SQLException {
+        String insertOrder = "INSERT INTO orders(date, total_cents, restaurant_id, order_key) VALUES(?,?,?,?)";
+        String insertOrderItem = "INSERT INTO order_items(order_id, food_name, quantity, price_cents, food_id)"
+                + " VALUES(?,?,?,?,?)";
+
+        order.duplicate = false;
+        if (order.orderKey != null) {
+            int storedId = findOrderByKey(conn, order.orderKey);
+            if (storedId != -1) {
+                order.duplicate = true;
+                return storedId;
+            }
+        }
+
+        String dateStr = java.time.LocalDateTime.now().format(DATE_FORMAT);
+
+        int orderId;
+        try (PreparedStatement pstmt = conn.prepareStatement(insertOrder, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, dateStr);
+            pstmt.setLong(2, order.totalCents);
+            pstmt.setInt(3, order.restaurantId);
+            pstmt.setString(4, order.orderKey);
+            pstmt.executeUpdate();
+
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                if (!rs.next()) {
+                    throw new SQLException("No order id generated");
+                }
+                orderId = rs.getInt(1);
+            }
+        }
+
+        try (PreparedStatement pstmtItem = conn.prepareStatement(insertOrderItem)) {
+            for (int i = 0; i < order.itemCount; i++) {
+                pstmtItem.setInt(1, orderId);
+                pstmtItem.setString(2, order.names[i]);
+                pstmtItem.setInt(3, order.quantities[i]);
+                pstmtItem.setLong(4, order.priceCents[i]);
+                if (order.foodIds[i] > 0) {
+                    pstmtItem.setInt(5, order.foodIds[i]);
+                } else {
+                    pstmtItem.setNull(5, java.sql.Types.INTEGER);
+                }
+                pstmtItem.addBatch();
+            }
+            pstmtItem.executeBatch();
+        }
+        return orderId;
+    }
+
+    /**
+     * Insert several orders and all their items with multi-row INSERTs, on a
+     * connection that is already inside a transaction. Ids are assigned here,
+     * after the current maximum, so the items can be inserted without a round
+     * trip per order. Writer transactions begin IMMEDIATE (see ConnectionPool),
+     * so the write lock is already held when MAX(id) is read and no other
+     * writer, in this process or another, can take the same ids before the
+     * commit. Like SQLite's own rowid choice for this table (it has no
+     * AUTOINCREMENT), ids freed by deleting the newest orders are reused.
+     * Returns the ids in the same order. An order whose key is already
+     * stored, or appears earlier in the list, is not inserted again: it gets
+     * the existing id and is marked a duplicate.
+     */
+    private static int[] insertOrders(Connection conn, List<OrderBuffer> orders) throws SQLException {
+        int nextId;
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM orders")) {
+            rs.next();
+            nextId = rs.getInt(1);
+        }
+        String dateStr = java.time.LocalDateTime.now().format(DATE_FORMAT);
+
+        java.util.Map<String, Integer> keyedIds = findOrdersByKey(conn, orders);
+        int[] orderIds = new int[orders.size()];
+        List<OrderBuffer> fresh = new ArrayList<>(orders.size());
+        int[] freshIds = new int[orders.size()];
+        for (int i = 0; i < orders.size(); i++) {
+            OrderBuffer order = orders.get(i);
+            Integer storedId = order.orderKey != null ? keyedIds.get(order.orderKey) : null;
+            order.duplicate = storedId != null;
+            if (order.duplicate) {
+                orderIds[i] = storedId;
+                continue;
+            }
+            orderIds[i] = nextId++;
+            freshIds[fresh.size()] = orderIds[i];
+            fresh.add(order);
+            if (order.orderKey != null) {
+                keyedIds.put(order.orderKey, orderIds[i]);
+            }
+        }
+
+        for (int start = 0; start < fresh.size(); start += ORDER_ROWS_PER_INSERT) {
+            int rows = Math.min(ORDER_ROWS_PER_INSERT, fresh.size() - start);
+            String sql = commaList(
+                    "INSERT INTO orders(id, date, total_cents, restaurant_id, order_key) VALUES",
+                    "(?,?,?,?,?)", rows);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int p = 1;
+                for (int i = start; i < start + rows; i++) {
+                    OrderBuffer order = fresh.get(i);
+                    pstmt.setInt(p++, freshIds[i]);
+                    pstmt.setString(p++, dateStr);
+                    pstmt.setLong(p++, order.totalCents);
+                    pstmt.setInt(p++, order.restaurantId);
+                    pstmt.setString(p++, order.orderKey);
+                }
+                pstmt.executeUpdate();
+            }
+        }
+
+        // Items of all new orders, flattened into as few statements as the parameter limit allows
+        int remaining = 0;
+        for (OrderBuffer order : fresh) {
+            remaining += order.itemCount;
+        }
+        int o = 0;
+        int item = 0;
+        while (remaining > 0) {
+            int rows = Math.min(ITEM_ROWS_PER_INSERT, remaining);
+            String sql = commaList(
+                    "INSERT INTO order_items(order_id, food_name, quantity, price_cents, food_id) VALUES",
+                    "(?,?,?,?,?)", rows);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int p = 1;
+                for (int r = 0; r < rows; r++) {
+                    while (item == fresh.get(o).itemCount) {
+                        o++;
+                        item = 0;
+                    }
+                    OrderBuffer order = fresh.get(o);
+                    pstmt.setInt(p++, freshIds[o]);
+                    pstmt.setString(p++, order.names[item]);
+                    pstmt.setInt(p++, order.quantities[item]);
+                    pstmt.setLong(p++, order.priceCents[item]);
+                    if (order.foodIds[item] > 0) {
+                        pstmt.setInt(p++, order.foodIds[item]);
+                    } else {
+                        pstmt.setNull(p++, java.sql.Types.INTEGER);
+                    }
+                    item++;
+                }
+                pstmt.executeUpdate();
+            }
+            remaining -= rows;
+        }
+        return orderIds;
+    }
+
+    /**
+     * Id of the order stored under this key, or -1 if there is none.
+     */
+    private static int findOrderByKey(Connection conn, String orderKey) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(ORDER_ID_BY_KEY_SQL)) {
+            pstmt.setString(1, orderKey);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * Stored order ids by key, for the keyed orders in the list.
+     */
+    private static java.util.Map<String, Integer> findOrdersByKey(Connection conn, List<OrderBuffer> orders)
+            throws SQLException {
+        List<String> keys = new ArrayList<>();
+        for (OrderBuffer order : orders) {
+            if (order.orderKey != null) {
+                keys.add(order.orderKey);
+            }
+        }
+        java.util.Map<String, Integer> orderIds = new java.util.HashMap<>();
+        for (int start = 0; start < keys.size(); start += MAX_KEYS_PER_QUERY) {
+            List<String> chunk = keys.subList(start, Math.min(keys.size(), start + MAX_KEYS_PER_QUERY));
+            String sql = commaList(ORDER_IDS_BY_KEYS_SQL_PREFIX, "?", chunk.size()) + ")";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        orderIds.put(rs.getString(1), rs.getInt(2));
+                    }
+                }
+            }
+        }
+        return orderIds;
+    }
 
-        OrderItem(String name, int quantity, double price) {
-            this.name = name;
-            this.quantity = quantity;
-            this.price = price;
+    /**
+     * prefix followed by count comma-separated copies of element, e.g. the
+     * VALUES rows of a multi-row INSERT.
+     */
+    private static String commaList(String prefix, String element, int count) {
+        StringBuilder sql = new StringBuilder(prefix.length() + count * (element.length() + 1));
+        sql.append(prefix);
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? ' ' : ',').append(element);
         }
+        return sql.toString();
     }
 }
@@ -0,0 +1,531 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client side of the OrderServer protocol over one persistent connection.
+ *
+ * Orders are tagged with a CORRELATION_ID and can be pipelined: all blocks are
+ * written first, then the responses are read and matched back by id, so a
+ * multi-restaurant checkout costs one round trip and no extra handshakes.
+ *
+ * With foodordering.client.binaryProtocol=true the connection uses
+ * BinaryProtocol frames instead of text lines; callers see the same
+ * "STATUS:message" responses either way.
+ */
+public class OrderServerClient {
+
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final int RESPONSE_TIMEOUT_MS = 5000;
+
+    private final String host;
+    private final int port;
+    private final boolean binary;
+    private final AtomicLong nextCorrelationId = new AtomicLong(1);
+
+    private Socket socket;
+    private PrintWriter out;
+    private BufferedReader in;
+    private DataOutputStream binaryOut;
+    private BinaryProtocol.FrameReader frames;
+
+    public OrderServerClient(String host, int port) {
+        this(host, port, Boolean.getBoolean("foodordering.client.binaryProtocol"));
+    }
+
+    public OrderServerClient(String host, int port, boolean binary) {
+        this.host = host;
+        this.port = port;
+        this.binary = binary;
+    }
+
+    /**
+     * One order for a single restaurant. The order key, if set, is sent with
+     * every attempt, so the server can tell a resent order from a new one.
+     */
+    public static class OrderRequest {
+        final int restaurantId;
+        final long totalCents;
+        final List<BasketItem> items;
+        final String orderKey; // null for an untracked order
+
+        public OrderRequest(int restaurantId, long totalCents, List<BasketItem> items) {
+            this(restaurantId, totalCents, items, null);
+        }
+
+        public OrderRequest(int restaurantId, long totalCents, List<BasketItem> items, String orderKey) {
+            this.restaurantId = restaurantId;
+            this.totalCents = totalCents;
+            this.items = items;
+            this.orderKey = orderKey;
+        }
+    }
+
+    /**
+     * The server's answer for one order of a batch.
+     */
+    public static class BatchResult {
+        final String status; // OK, REJECTED or ERROR
+        final int orderId; // -1 unless stored
+        final String message;
+        final boolean batchRefused; // the server answered for the batch as a whole, not for this order
+
+        BatchResult(String status, int orderId, String message) {
+            this(status, orderId, message, false);
+        }
+
+        private BatchResult(String status, int orderId, String message, boolean batchRefused) {
+            this.status = status;
+            this.orderId = orderId;
+            this.message = message;
+            this.batchRefused = batchRefused;
+        }
+
+        public boolean isStored() {
+            return "OK".equals(status);
+        }
+
+        /**
+         * Whether the whole batch was refused before any of its orders were
+         * looked at; the message says why (too large, server busy, malformed).
+         */
+        public boolean isBatchRefused() {
+            return batchRefused;
+        }
+
+        @Override
+        public String toString() {
+            return status + ":" + message;
+        }
+    }
+
+    /**
+     * Pipeline several orders on the shared connection. Returns one response
+     * per request in the same order; a request the server did not answer gets
+     * a null response.
+     *
+     * A connection that has been idle may have been closed by the server; if
+     * a reused connection fails before any response arrives, we reconnect and
+     * resend once.
+     */
+    public synchronized List<String> sendOrders(List<OrderRequest> requests) throws IOException {
+        boolean reused = socket != null;
+        try {
+            return exchange(requests);
+        } catch (IOException e) {
+            closeQuietly();
+            // Only a dead reused connection is safe to retry; a timeout or a partial
+            // answer means the server may already have stored the orders
+            if (!reused || e instanceof PartialResponseException || e instanceof SocketTimeoutException) {
+                throw e;
+            }
+            return exchange(requests);
+        }
+    }
+
+    /**
+     * Send several orders as one ORDER_BATCH. The server stores the valid ones
+     * in a single transaction; returns one result per request in the same
+     * order. If the batch as a whole is refused (too large, server busy),
+     * every result carries that error and nothing was stored.
+     *
+     * Retried once on a dead reused connection, like sendOrders.
+     */
+    public synchronized List<BatchResult> sendBatch(List<OrderRequest> requests) throws IOException {
+        boolean reused = socket != null;
+        try {
+            return exchangeBatch(requests);
+        } catch (IOException e) {
+            closeQuietly();
+            if (!reused || e instanceof PartialResponseException || e instanceof SocketTimeoutException) {
+                throw e;
+            }
+            return exchangeBatch(requests);
+        }
+    }
+
+    private List<BatchResult> exchangeBatch(List<OrderRequest> requests) throws IOException {
+        ensureConnected();
+        if (binary) {
+            return exchangeBatchFrame(requests);
+        }
+
+        out.print("ORDER_BATCH\n");
+        for (OrderRequest request : requests) {
+            writeOrder(String.valueOf(nextCorrelationId.getAndIncrement()), request);
+        }
+        out.print("END_BATCH\n");
+        out.flush();
+        if (out.checkError()) {
+            throw new IOException("Connection to order server lost");
+        }
+
+        String line = in.readLine();
+        if (line == null) {
+            throw new IOException("Order server closed the connection");
+        }
+        if (!line.startsWith("BATCH_RESULT:")) {
+            return batchRefused(requests.size(), line);
+        }
+
+        // ORDER_RESULT:index:STATUS:orderId:message, one per order, then END_BATCH
+        BatchResult[] results = new BatchResult[requests.size()];
+        while (!"END_BATCH".equals(line = in.readLine())) {
+            if (line == null) {
+                throw new PartialResponseException("Order server closed the connection mid-batch");
+            }
+            String[] parts = line.split(":", 5);
+            if (parts.length == 5 && "ORDER_RESULT".equals(parts[0])) {
+                int index = Integer.parseInt(parts[1]);
+                if (index >= 0 && index < results.length) {
+                    results[index] = new BatchResult(parts[2], Integer.parseInt(parts[3]), parts[4]);
+                }
+            }
+        }
+        return completeBatch(results);
+    }
+
+    private List<BatchResult> exchangeBatchFrame(List<OrderRequest> requests) throws IOException {
+        if (requests.size() > 0xFFFF) {
+            throw new IOException("Too many orders for one batch");
+        }
+        byte[][][] names = new byte[requests.size()][][];
+        int length = 2;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = itemNames(requests.get(i));
+            length += 4 + orderPayloadLength(requests.get(i), names[i]);
+        }
+
+        binaryOut.writeByte(BinaryProtocol.MAGIC);
+        binaryOut.writeByte(BinaryProtocol.ORDER_BATCH);
+        binaryOut.writeInt(length);
+        binaryOut.writeShort(names.length);
+        for (int i = 0; i < names.length; i++) {
+            binaryOut.writeInt(orderPayloadLength(requests.get(i), names[i]));
+            writeOrderPayload((int) nextCorrelationId.getAndIncrement(), requests.get(i), names[i]);
+        }
+        binaryOut.flush();
+
+        if (!frames.next()) {
+            throw new IOException("Order server closed the connection");
+        }
+        ByteBuffer payload = frames.payload();
+        if (frames.type() != BinaryProtocol.BATCH_RESULT) {
+            String line = frames.type() == BinaryProtocol.REPLY ? replyText(payload) : "ERROR:Unexpected frame";
+            return batchRefused(requests.size(), line);
+        }
+
+        BatchResult[] results = new BatchResult[requests.size()];
+        int count = Math.min(Short.toUnsignedInt(payload.getShort()), results.length);
+        for (int i = 0; i < count; i++) {
+            payload.getInt(); // Correlation id; results come back in request order
+            String status = BinaryProtocol.statusName(payload.get());
+            int orderId = payload.getInt();
+            results[i] = new BatchResult(status, orderId, BinaryProtocol.getString(payload));
+        }
+        return completeBatch(results);
+    }
+
+    private static List<BatchResult> batchRefused(int size, String line) {
+        String[] parts = line.split(":", 2);
+        BatchResult refused = new BatchResult(parts[0], -1, parts.length == 2 ? parts[1] : line, true);
+        List<BatchResult> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(refused);
+        }
+        return results;
+    }
+
+    private static List<BatchResult> completeBatch(BatchResult[] results) {
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = new BatchResult("ERROR", -1, "No result from server");
+            }
+        }
+        return java.util.Arrays.asList(results);
+    }
+
+    private List<String> exchange(List<OrderRequest> requests) throws IOException {
+        ensureConnected();
+        if (binary) {
+            return exchangeFrames(requests);
+        }
+
+        List<String> correlationIds = new ArrayList<>();
+        for (OrderRequest request : requests) {
+            String correlationId = String.valueOf(nextCorrelationId.getAndIncrement());
+            correlationIds.add(correlationId);
+            writeOrder(correlationId, request);
+        }
+        out.flush();
+        if (out.checkError()) {
+            throw new IOException("Connection to order server lost");
+        }
+
+        Map<String, String> responses = new HashMap<>();
+        while (responses.size() < requests.size()) {
+            String line = in.readLine();
+            if (line == null) {
+                if (responses.isEmpty()) {
+                    throw new IOException("Order server closed the connection");
+                }
+                throw new PartialResponseException("Order server closed the connection mid-batch");
+            }
+
+            // STATUS:correlationId:message. Untagged lines (older servers, "Server busy")
+            // answer the oldest outstanding order, since those arrive in order.
+            String[] parts = line.split(":", 3);
+            if (parts.length == 3 && correlationIds.contains(parts[1])) {
+                responses.put(parts[1], parts[0] + ":" + parts[2]);
+            } else {
+                for (String correlationId : correlationIds) {
+                    if (!responses.containsKey(correlationId)) {
+                        responses.put(correlationId, line);
+                        break;
+                    }
+                }
+            }
+        }
+
+        List<String> ordered = new ArrayList<>();
+        for (String correlationId : correlationIds) {
+            ordered.add(responses.get(correlationId));
+        }
+        return ordered;
+    }
+
+    private List<String> exchangeFrames(List<OrderRequest> requests) throws IOException {
+        List<Integer> correlationIds = new ArrayList<>();
+        for (OrderRequest request : requests) {
+            int correlationId = (int) nextCorrelationId.getAndIncrement();
+            correlationIds.add(correlationId);
+            writeOrderFrame(correlationId, request);
+        }
+        binaryOut.flush();
+
+        Map<Integer, String> responses = new HashMap<>();
+        while (responses.size() < requests.size()) {
+            if (!frames.next()) {
+                if (responses.isEmpty()) {
+                    throw new IOException("Order server closed the connection");
+                }
+                throw new PartialResponseException("Order server closed the connection mid-batch");
+            }
+
+            ByteBuffer payload = frames.payload();
+            if (frames.type() == BinaryProtocol.RESULT) {
+                int correlationId = payload.getInt();
+                String status = BinaryProtocol.statusName(payload.get());
+                payload.getInt(); // Order id, not needed by callers yet
+                String message = BinaryProtocol.getString(payload);
+                if (correlationIds.contains(correlationId)) {
+                    responses.put(correlationId, status + ":" + message);
+                    continue;
+                }
+            }
+            // Untagged replies (e.g. a framing error) answer the oldest outstanding order
+            String line = frames.type() == BinaryProtocol.REPLY ? replyText(payload) : "ERROR:Unexpected frame";
+            for (Integer correlationId : correlationIds) {
+                if (!responses.containsKey(correlationId)) {
+                    responses.put(correlationId, line);
+                    break;
+                }
+            }
+        }
+
+        List<String> ordered = new ArrayList<>();
+        for (Integer correlationId : correlationIds) {
+            ordered.add(responses.get(correlationId));
+        }
+        return ordered;
+    }
+
+    /**
+     * Report a change the server did not make itself, e.g. "MENU_CHANGED:3",
+     * so it can push it to subscribed GUIs. Returns the server's reply.
+     * Notifications are idempotent, so a dead reused connection is retried.
+     */
+    public synchronized String sendNotification(String notification) throws IOException {
+        boolean reused = socket != null;
+        try {
+            return exchangeLine("NOTIFY:" + notification);
+        } catch (IOException e) {
+            closeQuietly();
+            if (!reused) {
+                throw e;
+            }
+            return exchangeLine("NOTIFY:" + notification);
+        }
+    }
+
+    private String exchangeLine(String line) throws IOException {
+        ensureConnected();
+        if (binary) {
+            ByteBuffer command = BinaryProtocol.command(line);
+            binaryOut.write(command.array(), 0, command.limit());
+            binaryOut.flush();
+            if (!frames.next()) {
+                throw new IOException("Order server closed the connection");
+            }
+            if (frames.type() != BinaryProtocol.REPLY) {
+                throw new IOException("Unexpected frame from order server");
+            }
+            return replyText(frames.payload());
+        }
+        out.print(line + "\n");
+        out.flush();
+        if (out.checkError()) {
+            throw new IOException("Connection to order server lost");
+        }
+        String response = in.readLine();
+        if (response == null) {
+            throw new IOException("Order server closed the connection");
+        }
+        return response;
+    }
+
+    private void writeOrder(String correlationId, OrderRequest request) {
+        out.print("ORDER\n");
+        out.print("CORRELATION_ID:" + correlationId + "\n");
+        if (request.orderKey != null) {
+            out.print("ORDER_KEY:" + request.orderKey + "\n");
+        }
+        out.print("RESTAURANT_ID:" + request.restaurantId + "\n");
+        out.print("TOTAL:" + Money.format(request.totalCents) + "\n");
+        out.print("ITEMS:" + request.items.size() + "\n");
+
+        for (BasketItem item : request.items) {
+            out.print("ITEM:" + item.getFood().getName() + "|" +
+                    item.getQuantity() + "|" +
+                    Money.format(item.getFood().getPriceCents()) + "|" +
+                    item.getFoodId() + "\n");
+        }
+        out.print("END_ORDER\n");
+    }
+
+    /**
+     * One ORDER frame (layout in BinaryProtocol).
+     */
+    private void writeOrderFrame(int correlationId, OrderRequest request) throws IOException {
+        byte[][] names = itemNames(request);
+        binaryOut.writeByte(BinaryProtocol.MAGIC);
+        binaryOut.writeByte(BinaryProtocol.ORDER);
+        binaryOut.writeInt(orderPayloadLength(request, names));
+        writeOrderPayload(correlationId, request, names);
+    }
+
+    private static byte[][] itemNames(OrderRequest request) throws IOException {
+        if (request.items.size() > 0xFFFF) {
+            throw new IOException("Too many items for one order");
+        }
+        byte[][] names = new byte[request.items.size()][];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = BinaryProtocol.utf8(request.items.get(i).getFood().getName());
+        }
+        return names;
+    }
+
+    private static int orderPayloadLength(OrderRequest request, byte[][] names) {
+        int length = 4 + 4 + 8 + 2;
+        for (byte[] name : names) {
+            length += 4 + 4 + 8 + 2 + name.length;
+        }
+        if (request.orderKey != null) {
+            length += 2 + BinaryProtocol.utf8(request.orderKey).length;
+        }
+        return length;
+    }
+
+    private void writeOrderPayload(int correlationId, OrderRequest request, byte[][] names) throws IOException {
+        binaryOut.writeInt(correlationId);
+        binaryOut.writeInt(request.restaurantId);
+        binaryOut.writeLong(request.totalCents);
+        binaryOut.writeShort(names.length);
+        for (int i = 0; i < names.length; i++) {
+            BasketItem item = request.items.get(i);
+            binaryOut.writeInt(item.getFoodId());
+            binaryOut.writeInt(item.getQuantity());
+            binaryOut.writeLong(item.getFood().getPriceCents());
+            binaryOut.writeShort(names[i].length);
+            binaryOut.write(names[i]);
+        }
+        if (request.orderKey != null) {
+            byte[] key = BinaryProtocol.utf8(request.orderKey);
+            binaryOut.writeShort(key.length);
+            binaryOut.write(key);
+        }
+    }
+
+    private static String replyText(ByteBuffer payload) {
+        return new String(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining(),
+                java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CONNECTION MANAGEMENT
+    // ═══════════════════════════════════════════════════════════════════
+    private void ensureConnected() throws IOException {
+        if (socket != null && !socket.isClosed()) {
+            return;
+        }
+
+        Socket s = new Socket();
+        try {
+            s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            s.setSoTimeout(RESPONSE_TIMEOUT_MS);
+            s.setTcpNoDelay(true);
+            socket = s;
+            if (binary) {
+                binaryOut = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                frames = new BinaryProtocol.FrameReader(new java.io.BufferedInputStream(s.getInputStream()));
+            } else {
+                out = new PrintWriter(s.getOutputStream(), false);
+                in = new BufferedReader(new InputStreamReader(s.getInputStream()));
+            }
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+    }
+
+    public synchronized void close() {
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+        socket = null;
+        out = null;
+        in = null;
+        binaryOut = null;
+        frames = null;
+    }
+
+    /**
+     * Some responses were received before the connection dropped; resending
+     * would risk storing those orders twice.
+     */
+    private static class PartialResponseException extends IOException {
+        PartialResponseException(String message) {
+            super(message);
+        }
+    }
+}
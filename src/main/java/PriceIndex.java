@@ -0,0 +1,230 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The server's authoritative view of food prices.
+ *
+ * The whole food table is held as an immutable snapshot behind a volatile
+ * reference: lookups are a plain map read with no locking, and a reload
+ * builds a new snapshot and swaps it in. Reloads happen periodically when the
+ * catalog version (bumped by triggers on every food change) moves, on demand
+ * via {@link #requestRefresh()} (requests made while one is still queued share
+ * it), and when a lookup disagrees with a client, at most once per minimum
+ * refresh interval so bad clients can't force a reload per order.
+ */
+public class PriceIndex {
+
+    /**
+     * One food row as the server prices it.
+     */
+    public static final class Entry {
+        final int foodId;
+        final int restaurantId;
+        final String name;
+        final long priceCents;
+
+        Entry(int foodId, int restaurantId, String name, long priceCents) {
+            this.foodId = foodId;
+            this.restaurantId = restaurantId;
+            this.name = name;
+            this.priceCents = priceCents;
+        }
+    }
+
+    private static final class Snapshot {
+        final Map<Integer, Entry> byId;
+        final Map<String, Entry> byRestaurantAndName; // For clients that predate food ids
+        final long catalogVersion;
+
+        Snapshot(Map<Integer, Entry> byId, Map<String, Entry> byRestaurantAndName, long catalogVersion) {
+            this.byId = byId;
+            this.byRestaurantAndName = byRestaurantAndName;
+            this.catalogVersion = catalogVersion;
+        }
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(Collections.emptyMap(), Collections.emptyMap(), -1);
+
+    private final ConnectionPool pool;
+    private final long minRefreshIntervalNanos;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Snapshot snapshot = EMPTY;
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    private final AtomicLong lastMissRefreshNanos = new AtomicLong(System.nanoTime() - Long.MAX_VALUE / 2);
+
+    // Metrics
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong missRefreshes = new AtomicLong();
+    private final AtomicLong coalescedRefreshes = new AtomicLong();
+    private volatile long lastReloadMicros;
+
+    public PriceIndex(ConnectionPool pool, long refreshIntervalMs, long minRefreshIntervalMs) {
+        this.pool = pool;
+        this.minRefreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minRefreshIntervalMs);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(ClientExecutor.namedThreads("price-index-"));
+        if (refreshIntervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::refreshIfChanged, refreshIntervalMs, refreshIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Build an index from foodordering.server.priceIndex.refreshMs (default
+     * 5000) and foodordering.server.priceIndex.minRefreshMs (default 1000).
+     */
+    public static PriceIndex fromSystemProperties(ConnectionPool pool) {
+        return new PriceIndex(pool,
+                Long.getLong("foodordering.server.priceIndex.refreshMs", 5000L),
+                Long.getLong("foodordering.server.priceIndex.minRefreshMs", 1000L));
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // LOOKUPS (lock-free)
+    // ═══════════════════════════════════════════════════════════════════
+    public Entry byId(int foodId) {
+        return snapshot.byId.get(foodId);
+    }
+
+    public Entry byName(int restaurantId, String name) {
+        return snapshot.byRestaurantAndName.get(nameKey(restaurantId, name));
+    }
+
+    private static String nameKey(int restaurantId, String name) {
+        return restaurantId + ":" + name;
+    }
+
+    public int size() {
+        return snapshot.byId.size();
+    }
+
+    /**
+     * False until the first successful load.
+     */
+    public boolean isLoaded() {
+        return snapshot != EMPTY;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // REFRESH
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Reload now, on the calling thread. Used at startup.
+     */
+    public void refresh() throws SQLException {
+        reload();
+    }
+
+    /**
+     * Reload in the background, e.g. when a client reports a menu change.
+     * Returns immediately so it can be called from the selector thread. A
+     * request made while an earlier one has not started yet is folded into
+     * it, so a client repeating REFRESH_PRICES queues at most one reload.
+     */
+    public void requestRefresh() {
+        if (!refreshPending.compareAndSet(false, true)) {
+            coalescedRefreshes.incrementAndGet();
+            return;
+        }
+        scheduler.execute(() -> {
+            // Cleared before reading, so a change reported during the reload gets a reload of its own
+            refreshPending.set(false);
+            try {
+                reload();
+            } catch (SQLException e) {
+                System.out.println("SQL Error: price index refresh failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Reload after a lookup disagreed with a client, unless another miss
+     * already did so within the minimum refresh interval. Returns true if the
+     * index was reloaded and the caller should look again.
+     */
+    public boolean refreshOnMiss() {
+        long now = System.nanoTime();
+        long last = lastMissRefreshNanos.get();
+        if (now - last < minRefreshIntervalNanos || !lastMissRefreshNanos.compareAndSet(last, now)) {
+            return false;
+        }
+        missRefreshes.incrementAndGet();
+        try {
+            reload();
+            return true;
+        } catch (SQLException e) {
+            System.out.println("SQL Error: price index refresh failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void refreshIfChanged() {
+        try {
+            long version;
+            try (Connection conn = pool.borrow()) {
+                version = readCatalogVersion(conn);
+            }
+            if (version < 0 || version != snapshot.catalogVersion) {
+                reload();
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.out.println("SQL Error: price index refresh failed: " + e.getMessage());
+        }
+    }
+
+    private synchronized void reload() throws SQLException {
+        long start = System.nanoTime();
+        Map<Integer, Entry> byId = new HashMap<>();
+        Map<String, Entry> byName = new HashMap<>();
+        long version;
+
+        try (Connection conn = pool.borrow()) {
+            version = readCatalogVersion(conn);
+            try (Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery(
+                            "SELECT id, restaurant_id, name, price_cents FROM food ORDER BY id")) {
+                while (rs.next()) {
+                    Entry entry = new Entry(rs.getInt("id"), rs.getInt("restaurant_id"), rs.getString("name"),
+                            rs.getLong("price_cents"));
+                    byId.put(entry.foodId, entry);
+                    // Lowest id wins for duplicate names, matching the clients' name lookup
+                    byName.putIfAbsent(nameKey(entry.restaurantId, entry.name), entry);
+                }
+            }
+        }
+
+        snapshot = new Snapshot(Collections.unmodifiableMap(byId), Collections.unmodifiableMap(byName), version);
+        reloads.incrementAndGet();
+        lastReloadMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+    }
+
+    private static long readCatalogVersion(Connection conn) {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT version FROM catalog_version WHERE id = 1")) {
+            return rs.next() ? rs.getLong(1) : -1;
+        } catch (SQLException e) {
+            return -1; // Schema not migrated yet: reload on every periodic check
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public String getStats() {
+        return String.format("prices[items=%d, version=%d] reloads=%d missRefreshes=%d coalescedRefreshes=%d"
+                + " lastReload=%dus", size(), snapshot.catalogVersion, reloads.get(), missRefreshes.get(),
+                coalescedRefreshes.get(), lastReloadMicros);
+    }
+}
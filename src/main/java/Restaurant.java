@@ -1,7 +1,10 @@
+import java.util.function.Supplier;
+
 public class Restaurant {
     private int id;
     private String name;
     private Menu menu;
+    private Supplier<Menu> menuLoader; // Set for header-only restaurants, loads the menu on first access
 
     public Restaurant(int id, String name) {
         this.id = id;
@@ -18,15 +21,32 @@ public class Restaurant {
     }
 
     public Menu getMenu() {
+        if (menu == null && menuLoader != null) {
+            menu = menuLoader.get();
+            menuLoader = null;
+        }
         return menu;
     }
 
+    public boolean isMenuLoaded() {
+        return menu != null;
+    }
+
     public void setName(String name) {
         this.name = name;
     }
 
     public void setMenu(Menu menu) {
         this.menu = menu;
+        this.menuLoader = null;
+    }
+
+    /**
+     * Defer loading the menu until getMenu() is first called.
+     */
+    public void setMenuLoader(Supplier<Menu> menuLoader) {
+        this.menu = null;
+        this.menuLoader = menuLoader;
     }
 
     @Override
@@ -3,6 +3,7 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class RestaurantGUI extends JFrame {
 
@@ -82,6 +83,7 @@ public class RestaurantGUI extends JFrame {
     private static final Font FOOD_DETAIL_FONT = new Font(getSansSerifFont(), Font.PLAIN, 12);
     private static final Font BUTTON_FONT = new Font(getSansSerifFont(), Font.BOLD, 13);
     private static final Font PRICE_FONT = new Font(getSansSerifFont(), Font.BOLD, 15);
+    private static final Font ORDER_ID_FONT = new Font(getSansSerifFont(), Font.BOLD, 14);
 
     // ═══════════════════════════════════════════════════════════════════
     // COMPONENTS
@@ -96,10 +98,24 @@ public class RestaurantGUI extends JFrame {
     private Restaurant currentRestaurant;
     private JList<Food> menuList;
     private DefaultListModel<Food> menuModel;
-    private JPanel ordersPanel;
+    private JList<RestaurantOrder> ordersList;
+    private DefaultListModel<RestaurantOrder> ordersModel;
     private JLabel orderCountLabel;
 
+    private static final int ORDERS_PAGE_SIZE = 30;
+    // A refresh that finds more new orders than this reloads the list instead
+    private static final int MAX_NEW_ORDERS = 200;
+    private static final int ORDER_CARD_HEIGHT = 130;
+    private String nextOrdersCursor;
+    private int lastSeenOrderId;
+    private int totalOrderCount;
+
     private Timer autoRefreshTimer;
+    private Timer newOrdersTimer; // coalesces bursts of new-order events into one reload
+    private ServerEventListener eventListener;
+
+    // Database calls after startup run here; callbacks come back on the event thread
+    private final AsyncDataAccess data = AsyncDataAccess.fromSystemProperties();
 
     public RestaurantGUI() {
         setTitle("Delicious Bites - Restaurant Manager");
@@ -120,9 +136,55 @@ public class RestaurantGUI extends JFrame {
         applyTheme();
     }
 
+    /**
+     * New orders and menu edits are pushed by the server. The 10s poll only
+     * runs while the event subscription is down.
+     */
     private void startAutoRefresh() {
         autoRefreshTimer = new Timer(10000, e -> loadOrders()); // 10 seconds
         autoRefreshTimer.start();
+
+        newOrdersTimer = new Timer(250, e -> loadOrders());
+        newOrdersTimer.setRepeats(false);
+
+        eventListener = DatabaseManager.createEventListener(new ServerEventListener.Handler() {
+            @Override
+            public void onNewOrder(int orderId, int restaurantId) {
+                if (restaurantId == currentRestaurant.getId()) {
+                    newOrdersTimer.restart();
+                }
+            }
+
+            @Override
+            public void onMenuChanged(int restaurantId) {
+                if (restaurantId == 0 || restaurantId == currentRestaurant.getId()) {
+                    reloadMenuIfPresent();
+                }
+            }
+
+            @Override
+            public void onConnectionChanged(boolean connected) {
+                if (connected) {
+                    autoRefreshTimer.stop();
+                    // Catch up on anything missed while disconnected
+                    reloadMenuIfPresent();
+                    loadOrders();
+                } else {
+                    autoRefreshTimer.start();
+                }
+            }
+        });
+        eventListener.start();
+    }
+
+    /**
+     * Reload the menu after another manager changed it. loadMenu keeps the
+     * current one if the restaurant itself was deleted.
+     */
+    private void reloadMenuIfPresent() {
+        // The event can arrive before the catalog cache's own version check notices
+        DatabaseManager.getCatalogCache().invalidateAll();
+        loadMenu();
     }
 
     @Override
@@ -130,6 +192,13 @@ public class RestaurantGUI extends JFrame {
         if (autoRefreshTimer != null) {
             autoRefreshTimer.stop();
         }
+        if (newOrdersTimer != null) {
+            newOrdersTimer.stop();
+        }
+        if (eventListener != null) {
+            eventListener.stop();
+        }
+        data.shutdown();
         super.dispose();
     }
 
@@ -161,7 +230,7 @@ public class RestaurantGUI extends JFrame {
     }
 
     private void selectRestaurant() {
-        List<Restaurant> restaurants = DatabaseManager.getAllRestaurants();
+        List<Restaurant> restaurants = DatabaseManager.getRestaurantHeaders();
         if (restaurants.isEmpty()) {
             showThemedMessage("No restaurants in database!", "Error");
             return;
@@ -312,19 +381,25 @@ public class RestaurantGUI extends JFrame {
         // ═══════════════════════════════════════════════════════════════
         // RIGHT PANEL - Orders
         // ═══════════════════════════════════════════════════════════════
-        ordersPanel = new JPanel();
-        ordersPanel.setLayout(new BoxLayout(ordersPanel, BoxLayout.Y_AXIS));
-        ordersPanel.setOpaque(false);
-
-        JPanel ordersWrapper = new JPanel(new BorderLayout());
-        ordersWrapper.setOpaque(false);
-        ordersWrapper.add(ordersPanel, BorderLayout.NORTH);
-
-        JScrollPane ordersScroll = new JScrollPane(ordersWrapper);
+        ordersModel = new DefaultListModel<>();
+        ordersList = new JList<>(ordersModel);
+        ordersList.setCellRenderer(new OrderCardRenderer());
+        // A fixed height lets JList lay out any number of rows without rendering them
+        ordersList.setFixedCellHeight(ORDER_CARD_HEIGHT);
+        ordersList.setOpaque(false);
+        ordersList.setFocusable(false);
+
+        JScrollPane ordersScroll = new JScrollPane(ordersList);
         ordersScroll.setBorder(BorderFactory.createEmptyBorder());
         ordersScroll.setOpaque(false);
         ordersScroll.getViewport().setOpaque(false);
         ordersScroll.getVerticalScrollBar().setUnitIncrement(16);
+        ordersScroll.getVerticalScrollBar().addAdjustmentListener(e -> {
+            JScrollBar bar = (JScrollBar) e.getAdjustable();
+            if (!e.getValueIsAdjusting() && bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - 300) {
+                loadMoreOrders();
+            }
+        });
 
         JPanel ordersContent = new JPanel(new BorderLayout(0, 10));
         ordersContent.setOpaque(false);
@@ -361,7 +436,7 @@ public class RestaurantGUI extends JFrame {
         menuList.setSelectionBackground(getSelectionBg());
         orderCountLabel.setForeground(getTextSecondaryColor());
 
-        loadOrders(); // Refresh order cards with new theme
+        ordersList.repaint(); // The renderer picks up the new theme colors
         headerPanel.repaint();
         SwingUtilities.updateComponentTreeUI(this);
         repaint();
@@ -491,7 +566,7 @@ public class RestaurantGUI extends JFrame {
             detailsPanel.add(Box.createVerticalStrut(4));
             detailsPanel.add(typeLabel);
 
-            JLabel priceLabel = new JLabel(String.format("$%.2f", food.getPrice()));
+            JLabel priceLabel = new JLabel(Money.formatDollars(food.getPriceCents()));
             priceLabel.setFont(PRICE_FONT);
             priceLabel.setForeground(OLIVE_GREEN);
 
@@ -505,77 +580,196 @@ public class RestaurantGUI extends JFrame {
     // ═══════════════════════════════════════════════════════════════════
     // DATA OPERATIONS
     // ═══════════════════════════════════════════════════════════════════
-    private void loadMenu() {
-        menuModel.clear();
-        currentRestaurant = DatabaseManager.getRestaurantById(currentRestaurant.getId());
-        if (currentRestaurant != null) {
-            for (Food food : currentRestaurant.getMenu().getFoodItems()) {
-                menuModel.addElement(food);
-            }
+    private CompletableFuture<Void> loadMenu() {
+        int restaurantId = currentRestaurant.getId();
+        return data.readLatest("menu", "restaurant:" + restaurantId,
+                () -> DatabaseManager.getRestaurantById(restaurantId))
+                .thenAccept(restaurant -> {
+                    if (restaurant == null) {
+                        return;
+                    }
+                    currentRestaurant = restaurant;
+                    menuModel.clear();
+                    for (Food food : restaurant.getMenu().getFoodItems()) {
+                        menuModel.addElement(food);
+                    }
+                });
+    }
+
+    /**
+     * Order count plus either the first page (full reload) or the orders
+     * newer than the last one shown (incremental refresh), loaded together.
+     */
+    private static class OrdersSnapshot {
+        final int total;
+        final OrderPage<RestaurantOrder> page;
+        final List<RestaurantOrder> newOrders;
+
+        OrdersSnapshot(int total, OrderPage<RestaurantOrder> page, List<RestaurantOrder> newOrders) {
+            this.total = total;
+            this.page = page;
+            this.newOrders = newOrders;
         }
     }
 
+    /**
+     * Bring the order list up to date. Only orders newer than the last one
+     * shown are fetched and inserted at the top, so existing rows are left
+     * alone. Orders are never edited, so the only other change is a deletion,
+     * which shows up as a count mismatch and falls back to a full reload.
+     */
     private void loadOrders() {
-        ordersPanel.removeAll();
-        List<RestaurantOrder> orders = DatabaseManager.getOrdersForRestaurant(currentRestaurant.getId());
-
-        int totalOrders = orders.size();
-        for (int i = 0; i < orders.size(); i++) {
-            // orders are DESC (newest first), so reverse the numbering
-            int displayNumber = totalOrders - i;
-            ordersPanel.add(createOrderCard(orders.get(i), displayNumber));
-            ordersPanel.add(Box.createVerticalStrut(10));
+        if (ordersModel.isEmpty()) {
+            reloadOrders();
+            return;
         }
 
-        orderCountLabel.setText(orders.size() + (orders.size() == 1 ? " order" : " orders"));
-        ordersPanel.revalidate();
-        ordersPanel.repaint();
+        int restaurantId = currentRestaurant.getId();
+        int afterOrderId = lastSeenOrderId;
+        data.readLatest("orders", "newOrders:" + restaurantId + ":" + afterOrderId, () -> new OrdersSnapshot(
+                DatabaseManager.countOrdersForRestaurant(restaurantId), null,
+                DatabaseManager.getOrdersForRestaurantSince(restaurantId, afterOrderId, MAX_NEW_ORDERS + 1)))
+                .thenAccept(snapshot -> {
+                    if (restaurantId != currentRestaurant.getId() || afterOrderId != lastSeenOrderId) {
+                        return; // Switched restaurant or reloaded meanwhile
+                    }
+                    List<RestaurantOrder> newOrders = snapshot.newOrders;
+                    if (newOrders.size() > MAX_NEW_ORDERS || snapshot.total != totalOrderCount + newOrders.size()) {
+                        reloadOrders();
+                        return;
+                    }
+                    // Oldest first, so each one goes above the previous
+                    for (RestaurantOrder order : newOrders) {
+                        ordersModel.add(0, order);
+                        lastSeenOrderId = Math.max(lastSeenOrderId, order.getOrderId());
+                    }
+                    setTotalOrderCount(snapshot.total);
+                });
     }
 
-    private JPanel createOrderCard(RestaurantOrder order, int displayNumber) {
-        JPanel card = new JPanel(new BorderLayout(10, 8));
-        card.setOpaque(true);
-        card.setBackground(getCardColor());
-        card.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createLineBorder(getBorderColor(), 1, true),
-                BorderFactory.createEmptyBorder(12, 12, 12, 12)));
-        card.setMaximumSize(new Dimension(Short.MAX_VALUE, 120));
+    /**
+     * Replace the list with the newest orders, keeping as many rows as are
+     * currently shown so a refresh does not collapse pages the user scrolled to.
+     */
+    private void reloadOrders() {
+        int restaurantId = currentRestaurant.getId();
+        int pageSize = Math.max(ORDERS_PAGE_SIZE, ordersModel.size());
+        data.cancel("moreOrders");
+        data.readLatest("orders", "orders:" + restaurantId + ":" + pageSize, () -> new OrdersSnapshot(
+                DatabaseManager.countOrdersForRestaurant(restaurantId),
+                DatabaseManager.getOrdersForRestaurantPage(restaurantId, null, pageSize), null))
+                .thenAccept(snapshot -> {
+                    ordersModel.clear();
+                    lastSeenOrderId = 0;
+                    setTotalOrderCount(snapshot.total);
+                    appendOrdersPage(snapshot.page);
+                });
+    }
 
-        // Header: Order ID and Date
-        JPanel headerPanel = new JPanel(new BorderLayout());
-        headerPanel.setOpaque(false);
+    /**
+     * Fetch the next (older) page of orders when the list is scrolled near the bottom.
+     */
+    private void loadMoreOrders() {
+        if (nextOrdersCursor == null)
+            return;
 
-        JLabel orderIdLabel = new JLabel("Order #" + displayNumber);
-        orderIdLabel.setFont(new Font(getSansSerifFont(), Font.BOLD, 14));
-        orderIdLabel.setForeground(APPETIZING_ORANGE);
+        int restaurantId = currentRestaurant.getId();
+        String cursor = nextOrdersCursor;
+        data.readLatest("moreOrders", "moreOrders:" + restaurantId + ":" + cursor,
+                () -> DatabaseManager.getOrdersForRestaurantPage(restaurantId, cursor, ORDERS_PAGE_SIZE))
+                .thenAccept(page -> {
+                    if (!cursor.equals(nextOrdersCursor)) {
+                        return; // Already appended, or the list was reloaded meanwhile
+                    }
+                    appendOrdersPage(page);
+                });
+    }
 
-        JLabel dateLabel = new JLabel(order.getDate());
-        dateLabel.setFont(FOOD_DETAIL_FONT);
-        dateLabel.setForeground(getTextSecondaryColor());
+    private void appendOrdersPage(OrderPage<RestaurantOrder> page) {
+        for (RestaurantOrder order : page.getItems()) {
+            ordersModel.addElement(order);
+            lastSeenOrderId = Math.max(lastSeenOrderId, order.getOrderId());
+        }
+        nextOrdersCursor = page.getNextCursor();
+    }
 
-        headerPanel.add(orderIdLabel, BorderLayout.WEST);
-        headerPanel.add(dateLabel, BorderLayout.EAST);
+    private void setTotalOrderCount(int total) {
+        totalOrderCount = total;
+        orderCountLabel.setText(totalOrderCount + (totalOrderCount == 1 ? " order" : " orders"));
+        // Row numbers count from the oldest order, so they shift when the total changes
+        ordersList.repaint();
+    }
 
-        // Items list
-        JTextArea itemsArea = new JTextArea(order.getItemsDescription());
-        itemsArea.setFont(FOOD_DETAIL_FONT);
-        itemsArea.setForeground(getTextColor());
-        itemsArea.setBackground(getCardColor());
-        itemsArea.setEditable(false);
-        itemsArea.setLineWrap(true);
-        itemsArea.setWrapStyleWord(true);
-        itemsArea.setBorder(BorderFactory.createEmptyBorder(5, 0, 5, 0));
+    // ═══════════════════════════════════════════════════════════════════
+    // CUSTOM RENDERER: Order Card
+    // ═══════════════════════════════════════════════════════════════════
 
-        // Total
-        JLabel totalLabel = new JLabel(String.format("Total: $%.2f", order.getTotal()));
-        totalLabel.setFont(PRICE_FONT);
-        totalLabel.setForeground(OLIVE_GREEN);
+    /**
+     * One card component stamped for every visible row; JList only asks for
+     * the rows on screen, so a long order history costs nothing to scroll.
+     */
+    private class OrderCardRenderer implements ListCellRenderer<RestaurantOrder> {
+        private final JPanel card = new JPanel(new BorderLayout(10, 8));
+        private final JPanel cardHeader = new JPanel(new BorderLayout());
+        private final JLabel orderIdLabel = new JLabel();
+        private final JLabel dateLabel = new JLabel();
+        private final JTextArea itemsArea = new JTextArea();
+        private final JLabel totalLabel = new JLabel();
+        private final JPanel cell = new JPanel(new BorderLayout());
+        private javax.swing.border.Border cardBorder;
+        private boolean borderNightMode;
+
+        OrderCardRenderer() {
+            cardHeader.setOpaque(false);
+            orderIdLabel.setFont(ORDER_ID_FONT);
+            orderIdLabel.setForeground(APPETIZING_ORANGE);
+            dateLabel.setFont(FOOD_DETAIL_FONT);
+            cardHeader.add(orderIdLabel, BorderLayout.WEST);
+            cardHeader.add(dateLabel, BorderLayout.EAST);
+
+            itemsArea.setFont(FOOD_DETAIL_FONT);
+            itemsArea.setEditable(false);
+            itemsArea.setLineWrap(true);
+            itemsArea.setWrapStyleWord(true);
+            itemsArea.setBorder(BorderFactory.createEmptyBorder(5, 0, 5, 0));
+
+            totalLabel.setFont(PRICE_FONT);
+            totalLabel.setForeground(OLIVE_GREEN);
+
+            card.setOpaque(true);
+            card.add(cardHeader, BorderLayout.NORTH);
+            card.add(itemsArea, BorderLayout.CENTER);
+            card.add(totalLabel, BorderLayout.SOUTH);
+
+            // The gap between cards
+            cell.setOpaque(false);
+            cell.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+            cell.add(card, BorderLayout.CENTER);
+        }
 
-        card.add(headerPanel, BorderLayout.NORTH);
-        card.add(itemsArea, BorderLayout.CENTER);
-        card.add(totalLabel, BorderLayout.SOUTH);
+        @Override
+        public Component getListCellRendererComponent(JList<? extends RestaurantOrder> list,
+                RestaurantOrder order, int index, boolean isSelected, boolean cellHasFocus) {
+            // Theme colors are read on every call, so a theme switch only needs a repaint
+            if (cardBorder == null || borderNightMode != isNightMode) {
+                cardBorder = BorderFactory.createCompoundBorder(
+                        BorderFactory.createLineBorder(getBorderColor(), 1, true),
+                        BorderFactory.createEmptyBorder(12, 12, 12, 12));
+                borderNightMode = isNightMode;
+            }
+            card.setBackground(getCardColor());
+            card.setBorder(cardBorder);
 
-        return card;
+            // orders are DESC (newest first), so reverse the numbering
+            orderIdLabel.setText("Order #" + (totalOrderCount - index));
+            dateLabel.setText(order.getDate());
+            dateLabel.setForeground(getTextSecondaryColor());
+            itemsArea.setText(order.getItemsDescription());
+            itemsArea.setForeground(getTextColor());
+            itemsArea.setBackground(getCardColor());
+            totalLabel.setText("Total: " + Money.formatDollars(order.getTotalCents()));
+            return cell;
+        }
     }
 
     private void addFood() {
@@ -604,28 +798,33 @@ public class RestaurantGUI extends JFrame {
         showThemedConfirmation(
                 "Delete '" + selected.getName() + "' from the menu?",
                 "Confirm Delete",
-                () -> {
-                    DatabaseManager.deleteFood(selected.getId());
-                    loadMenu();
-                    showThemedMessage("Food item deleted!", "Success");
-                });
+                () -> data.write(() -> DatabaseManager.deleteFood(selected.getId()))
+                        .thenRun(() -> {
+                            loadMenu();
+                            showThemedMessage("Food item deleted!", "Success");
+                        }));
     }
 
     private void switchRestaurant() {
-        List<Restaurant> restaurants = DatabaseManager.getAllRestaurants();
-        if (restaurants.isEmpty()) {
-            showThemedMessage("No restaurants in database!", "Error");
-            return;
-        }
+        data.read("restaurants", DatabaseManager::getRestaurantHeaders).thenAccept(restaurants -> {
+            if (restaurants.isEmpty()) {
+                showThemedMessage("No restaurants in database!", "Error");
+                return;
+            }
 
-        Restaurant selected = showRestaurantSelectionDialog(restaurants, "Select restaurant to switch to:");
+            Restaurant selected = showRestaurantSelectionDialog(restaurants, "Select restaurant to switch to:");
 
-        if (selected != null && selected.getId() != currentRestaurant.getId()) {
-            currentRestaurant = selected;
-            restaurantNameLabel.setText(currentRestaurant.getName() + " - Manager");
-            loadMenu();
-            loadOrders();
-        }
+            if (selected != null && selected.getId() != currentRestaurant.getId()) {
+                currentRestaurant = selected;
+                restaurantNameLabel.setText(currentRestaurant.getName() + " - Manager");
+                nextOrdersCursor = null;
+                lastSeenOrderId = 0;
+                ordersModel.clear();
+                menuModel.clear();
+                loadMenu();
+                reloadOrders();
+            }
+        });
     }
 
     // ═══════════════════════════════════════════════════════════════════
@@ -813,7 +1012,7 @@ public class RestaurantGUI extends JFrame {
         if (existingFood != null) {
             nameField.setText(existingFood.getName());
             typeField.setText(existingFood.getType());
-            priceField.setText(String.valueOf(existingFood.getPrice()));
+            priceField.setText(Money.format(existingFood.getPriceCents()));
         }
 
         inputPanel.add(nameLabel);
@@ -832,23 +1031,25 @@ public class RestaurantGUI extends JFrame {
             try {
                 String name = nameField.getText().trim();
                 String type = typeField.getText().trim();
-                double price = Double.parseDouble(priceField.getText().trim());
+                long price = Money.parse(priceField.getText());
 
                 if (name.isEmpty() || type.isEmpty()) {
                     showThemedMessage("Name and type cannot be empty!", "Error");
                     return;
                 }
 
-                if (existingFood == null) {
-                    DatabaseManager.addFood(name, type, price, currentRestaurant.getId());
-                    showThemedMessage("Food item added successfully!", "Success");
-                } else {
-                    DatabaseManager.updateFood(existingFood.getId(), name, type, price);
-                    showThemedMessage("Food item updated successfully!", "Success");
-                }
-
-                loadMenu();
-                dialog.dispose();
+                int restaurantId = currentRestaurant.getId();
+                saveBtn.setEnabled(false);
+                CompletableFuture<Void> saved = existingFood == null
+                        ? data.write(() -> DatabaseManager.addFood(name, type, price, restaurantId))
+                        : data.write(() -> DatabaseManager.updateFood(existingFood.getId(), name, type, price));
+                saved.thenRun(() -> {
+                    dialog.dispose();
+                    loadMenu();
+                    showThemedMessage(existingFood == null
+                            ? "Food item added successfully!"
+                            : "Food item updated successfully!", "Success");
+                });
             } catch (NumberFormatException ex) {
                 showThemedMessage("Invalid price format!", "Error");
             }
@@ -1,13 +1,13 @@
 public class RestaurantOrder {
     private int orderId;
     private String date;
-    private double total;
+    private long totalCents;
     private String itemsDescription;
 
-    public RestaurantOrder(int orderId, String date, double total, String itemsDescription) {
+    public RestaurantOrder(int orderId, String date, long totalCents, String itemsDescription) {
         this.orderId = orderId;
         this.date = date;
-        this.total = total;
+        this.totalCents = totalCents;
         this.itemsDescription = itemsDescription;
     }
 
@@ -19,8 +19,8 @@ public class RestaurantOrder {
         return date;
     }
 
-    public double getTotal() {
-        return total;
+    public long getTotalCents() {
+        return totalCents;
     }
 
     public String getItemsDescription() {
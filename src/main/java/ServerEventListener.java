@@ -0,0 +1,174 @@
+import javax.swing.SwingUtilities;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keeps a SUBSCRIBE connection to the order server open and hands its events
+ * to a GUI.
+ *
+ * Runs on its own daemon thread and reconnects with backoff when the server
+ * goes away. Handler methods are always called on the Swing event thread, so
+ * GUIs can update their models directly. While disconnected a GUI should fall
+ * back to polling; onConnectionChanged tells it when.
+ */
+public class ServerEventListener {
+
+    /**
+     * Callbacks for server events, invoked on the Swing event thread.
+     */
+    public interface Handler {
+        void onNewOrder(int orderId, int restaurantId);
+
+        /**
+         * @param restaurantId the changed restaurant, or 0 if it may be any
+         */
+        void onMenuChanged(int restaurantId);
+
+        /**
+         * Called with true once subscribed (the GUI should resync, since events
+         * may have been missed) and with false when the connection drops.
+         */
+        void onConnectionChanged(boolean connected);
+    }
+
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final long MIN_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 30000;
+    // The server pings every 15s by default; silence for longer means the connection is dead
+    private static final int READ_TIMEOUT_MS = Integer.getInteger("foodordering.client.events.timeoutMs", 45000);
+
+    private final String host;
+    private final int port;
+    private final Handler handler;
+
+    private volatile boolean running;
+    private volatile Socket socket;
+    private Thread thread;
+
+    public ServerEventListener(String host, int port, Handler handler) {
+        this.host = host;
+        this.port = port;
+        this.handler = handler;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "server-events");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        closeSocket();
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CONNECTION LOOP
+    // ═══════════════════════════════════════════════════════════════════
+    private void run() {
+        long backoffMs = MIN_BACKOFF_MS;
+        while (running) {
+            boolean subscribed = false;
+            try {
+                subscribed = listen();
+                backoffMs = MIN_BACKOFF_MS;
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("⚠ Event subscription unavailable: " + e.getMessage());
+                }
+            } finally {
+                closeSocket();
+            }
+
+            if (subscribed) {
+                SwingUtilities.invokeLater(() -> handler.onConnectionChanged(false));
+            }
+            if (!running) {
+                return;
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    /**
+     * Subscribe and dispatch events until the connection ends. Returns true
+     * if the subscription was established.
+     */
+    private boolean listen() throws IOException {
+        Socket s = new Socket();
+        socket = s;
+        s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+        s.setSoTimeout(READ_TIMEOUT_MS);
+
+        PrintWriter out = new PrintWriter(s.getOutputStream(), true);
+        BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+        out.println("SUBSCRIBE");
+
+        String line = in.readLine();
+        if (line == null || !line.startsWith("OK")) {
+            throw new IOException("Subscription refused: " + line);
+        }
+        SwingUtilities.invokeLater(() -> handler.onConnectionChanged(true));
+
+        try {
+            while (running && (line = in.readLine()) != null) {
+                dispatch(line);
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.out.println("⚠ Event subscription lost: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void dispatch(String line) {
+        // EVENT:NEW_ORDER:orderId:restaurantId, EVENT:MENU_CHANGED:restaurantId, EVENT:PING
+        String[] parts = line.split(":");
+        if (parts.length < 2 || !"EVENT".equals(parts[0])) {
+            return;
+        }
+        try {
+            if ("NEW_ORDER".equals(parts[1]) && parts.length == 4) {
+                int orderId = Integer.parseInt(parts[2]);
+                int restaurantId = Integer.parseInt(parts[3]);
+                SwingUtilities.invokeLater(() -> handler.onNewOrder(orderId, restaurantId));
+            } else if ("MENU_CHANGED".equals(parts[1]) && parts.length == 3) {
+                int restaurantId = Integer.parseInt(parts[2]);
+                SwingUtilities.invokeLater(() -> handler.onMenuChanged(restaurantId));
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("⚠ Ignoring malformed event: " + line);
+        }
+    }
+
+    private void closeSocket() {
+        Socket s = socket;
+        socket = null;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * SQLite pragmas applied to every pooled connection when it is opened.
+ *
+ * All presets use WAL so readers (the GUIs) no longer block behind the
+ * server's writes. They differ in how much durability they trade for speed:
+ * - durable: synchronous=FULL, survives power loss after every commit
+ * - balanced: synchronous=NORMAL, a power loss may drop the last commits
+ * but never corrupts the database (default)
+ * - throughput: synchronous=OFF and larger caches, for imports and load tests
+ */
+public class StorageProfile {
+
+    public static final StorageProfile DURABLE = new StorageProfile("durable",
+            "WAL", "FULL", 0L, -2000, "DEFAULT", 5000);
+    public static final StorageProfile BALANCED = new StorageProfile("balanced",
+            "WAL", "NORMAL", 64L * 1024 * 1024, -16000, "MEMORY", 5000);
+    public static final StorageProfile THROUGHPUT = new StorageProfile("throughput",
+            "WAL", "OFF", 256L * 1024 * 1024, -64000, "MEMORY", 10000);
+
+    private final String name;
+    private final String journalMode;
+    private final String synchronous;
+    private final long mmapSize; // bytes, 0 disables memory-mapped I/O
+    private final int cacheSize; // negative values are KiB, positive values are pages
+    private final String tempStore;
+    private final int busyTimeoutMs;
+
+    public StorageProfile(String name, String journalMode, String synchronous, long mmapSize, int cacheSize,
+            String tempStore, int busyTimeoutMs) {
+        this.name = name;
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.mmapSize = mmapSize;
+        this.cacheSize = cacheSize;
+        this.tempStore = tempStore;
+        this.busyTimeoutMs = busyTimeoutMs;
+    }
+
+    public static StorageProfile byName(String name) {
+        switch (name.toLowerCase()) {
+            case "durable":
+                return DURABLE;
+            case "throughput":
+                return THROUGHPUT;
+            case "balanced":
+                return BALANCED;
+            default:
+                throw new IllegalArgumentException("Unknown storage profile: " + name);
+        }
+    }
+
+    /**
+     * Preset from foodordering.db.profile (default balanced), with individual
+     * pragmas overridable via foodordering.db.journalMode, .synchronous,
+     * .mmapSize, .cacheSize, .tempStore and .busyTimeoutMs.
+     */
+    public static StorageProfile fromSystemProperties() {
+        StorageProfile preset = byName(System.getProperty("foodordering.db.profile", "balanced"));
+        return new StorageProfile(
+                preset.name,
+                System.getProperty("foodordering.db.journalMode", preset.journalMode),
+                System.getProperty("foodordering.db.synchronous", preset.synchronous),
+                Long.getLong("foodordering.db.mmapSize", preset.mmapSize),
+                Integer.getInteger("foodordering.db.cacheSize", preset.cacheSize),
+                System.getProperty("foodordering.db.tempStore", preset.tempStore),
+                Integer.getInteger("foodordering.db.busyTimeoutMs", preset.busyTimeoutMs));
+    }
+
+    /**
+     * Apply the pragmas to a freshly opened connection.
+     */
+    public void apply(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // busy_timeout first so the journal_mode switch can wait for other processes
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMs);
+            stmt.execute("PRAGMA journal_mode = " + requireWord(journalMode));
+            stmt.execute("PRAGMA synchronous = " + requireWord(synchronous));
+            stmt.execute("PRAGMA mmap_size = " + mmapSize);
+            stmt.execute("PRAGMA cache_size = " + cacheSize);
+            stmt.execute("PRAGMA temp_store = " + requireWord(tempStore));
+        }
+    }
+
+    // Pragma values can't be bound as parameters, so only accept plain words
+    private static String requireWord(String value) {
+        if (!value.matches("[A-Za-z0-9_]+")) {
+            throw new IllegalArgumentException("Invalid pragma value: " + value);
+        }
+        return value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(journal=%s, synchronous=%s, mmap=%dMB, cache=%d, temp_store=%s, busy=%dms)",
+                name, journalMode, synchronous, mmapSize / (1024 * 1024), cacheSize, tempStore, busyTimeoutMs);
+    }
+}